@@ -0,0 +1,109 @@
+package maekawa;
+
+import java.util.Collection;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * One arbiter serving a synthetic stream: in each round every requester sends a REQUEST, then the
+ * lock is RELEASEd once per requester so the queue is empty again at the end of each round.
+ * Outgoing GRANT/FAILED/INQUIRE messages are dropped by the transport.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Fork(1)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+public class CoordinatorBenchmark {
+
+    // Four requesters fit the smallest cluster, and an arbiter holds at most one request per node.
+    private static final int REQUESTERS = 4;
+    private static final int ROUNDS = 4;
+    private static final int MESSAGES = 2 * REQUESTERS * ROUNDS;
+
+    public static class DiscardingTransport implements Transport {
+
+        @Override
+        public void open(NodeContext context, BlockingQueue<Message> incomingMessages) { }
+
+        @Override
+        public void start() { }
+
+        @Override
+        public void send(int processId, Message message) { }
+
+        @Override
+        public void send(Collection<Integer> processIds, Message message) { }
+
+        @Override
+        public void flush() { }
+
+        @Override
+        public void close() { }
+
+    }
+
+    @Param({ "5", "50", "500" })
+    public int processes;
+
+    private Coordinator coordinator;
+    private Message[] stream;
+
+    @Setup
+    public void setup() {
+
+        NodeContext context = new NodeContext(0, new DiscardingTransport());
+        context.clock = new VectorClock(this.processes, 0);
+        this.coordinator = new Coordinator(context, new LinkedBlockingQueue<Message>());
+
+        // Requests arrive with decreasing priority, so the ones that change the head alternate with the ones that do not.
+        this.stream = new Message[MESSAGES];
+
+        for( int round = 0; round < ROUNDS; round++ ) {
+
+            int first = round * 2 * REQUESTERS;
+
+            for( int i = 0; i < REQUESTERS; i++ ) {
+
+                int processId = 1 + i;
+                int sequence = round * REQUESTERS + i;
+                int[] vector = new int[this.processes];
+                vector[processId] = ( sequence % 2 == 0 ) ? 100 - sequence : 100 + sequence;
+
+                this.stream[first + i] = new Message(Message.Type.REQUEST, processId, new VectorClock(vector, processId));
+                this.stream[first + REQUESTERS + i] = new Message(Message.Type.RELEASE, processId, new VectorClock(vector, processId));
+
+            }
+
+        }
+
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(MESSAGES)
+    public Coordinator handleRequestReleaseStream() {
+
+        for( Message message : this.stream ) {
+            this.coordinator.handleMessage(message);
+        }
+
+        return this.coordinator;
+
+    }
+
+}
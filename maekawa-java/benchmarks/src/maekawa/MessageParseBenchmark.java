@@ -0,0 +1,67 @@
+package maekawa;
+
+import java.nio.ByteBuffer;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Fork(1)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+public class MessageParseBenchmark {
+
+    @Param({ "REQUEST", "YIELD", "INQUIRE", "RELEASE", "FAILED", "GRANT", "DEBUG", "FINISHED" })
+    public String type;
+
+    private String rawMessage;
+    private ByteBuffer binaryFrame;
+    private BinaryMessageCodec binaryCodec = new BinaryMessageCodec();
+
+    @Setup
+    public void setup() {
+
+        Message.Type messageType = Message.Type.valueOf(this.type);
+        Message message = null;
+
+        // A 5 node system like conf/config-1.txt, with clock values typical for the middle of a run.
+        if( messageType == Message.Type.DEBUG ) {
+            message = Message.debug(3, 512, 10240, 10250);
+        } else if( messageType == Message.Type.FINISHED ) {
+            message = new Message(messageType, -1, null);
+        } else {
+            message = new Message(messageType, 3, new VectorClock(new int[] { 2041, 1987, 2113, 2240, 1876 }, 3));
+        }
+
+        this.rawMessage = message.toString();
+
+        this.binaryFrame = ByteBuffer.allocate(this.binaryCodec.maxEncodedSize(message));
+        this.binaryCodec.encode(message, this.binaryFrame);
+        this.binaryFrame.flip();
+
+    }
+
+    @Benchmark
+    public Message parseText() {
+        return Message.parse(this.rawMessage);
+    }
+
+    @Benchmark
+    public Message decodeBinary() {
+        this.binaryFrame.rewind();
+        return this.binaryCodec.decode(this.binaryFrame);
+    }
+
+}
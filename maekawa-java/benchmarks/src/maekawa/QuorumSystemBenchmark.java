@@ -0,0 +1,72 @@
+package maekawa;
+
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Picks the quorum of a request the way Node.acquire() does, for every node in turn, with nothing
+ * avoided and with the root of the tree avoided. The messages per CS of each system are measured
+ * with LocalCluster, see the README.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Fork(1)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+public class QuorumSystemBenchmark {
+
+    @Param({ "grid", "tree", "hierarchical" })
+    public String system;
+
+    @Param({ "31", "255" })
+    public int processes;
+
+    private QuorumSystem quorumSystem;
+    private Set<Integer> nothingAvoided = Collections.<Integer>emptySet();
+    private Set<Integer> rootAvoided = new HashSet<Integer>();
+    private int nodeId = 0;
+
+    @Setup
+    public void setup() {
+
+        if( this.system.equals("tree") ) {
+            this.quorumSystem = new TreeQuorumSystem(this.processes);
+        } else if( this.system.equals("hierarchical") ) {
+            this.quorumSystem = new HierarchicalQuorumSystem(this.processes);
+        } else {
+            this.quorumSystem = new StaticQuorumSystem(ConfigFile.quorumGenerator(this.system).generate(this.processes));
+        }
+
+        this.rootAvoided.add(0);
+
+    }
+
+    @Benchmark
+    public Set<Integer> select() {
+        this.nodeId = (this.nodeId + 1) % this.processes;
+        return this.quorumSystem.selectQuorum(this.nodeId, this.nothingAvoided);
+    }
+
+    // A static quorum holding node 0 has no alternative and returns null.
+    @Benchmark
+    public Set<Integer> selectAvoidingRoot() {
+        this.nodeId = (this.nodeId + 1) % this.processes;
+        return this.quorumSystem.selectQuorum(this.nodeId, this.rootAvoided);
+    }
+
+}
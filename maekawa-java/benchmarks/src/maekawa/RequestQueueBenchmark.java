@@ -0,0 +1,100 @@
+package maekawa;
+
+import java.util.PriorityQueue;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Fills an arbiter's request queue and drains it again, once through a PriorityQueue ordered by
+ * Request.compareTo and once through the RequestHeap the arbiter uses.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Fork(1)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+public class RequestQueueBenchmark {
+
+    @Param({ "5", "50", "500" })
+    public int processes;
+
+    @Param({ "100" })
+    public int queuedRequests;
+
+    private Request[] requests;
+    private long[] priorities;
+
+    @Setup
+    public void setup() {
+
+        Random random = new Random(42);
+        this.requests = new Request[this.queuedRequests];
+        this.priorities = new long[this.queuedRequests];
+
+        for( int i = 0; i < this.requests.length; i++ ) {
+
+            int[] vector = new int[this.processes];
+
+            for( int j = 0; j < vector.length; j++ ) {
+                vector[j] = 1000 + random.nextInt(1000);
+            }
+
+            // An arbiter queues at most one request per node.
+            int processId = i;
+            this.requests[i] = new Message(Message.Type.REQUEST, processId, new VectorClock(vector, processId)).getRequest();
+            this.priorities[i] = this.requests[i].getPriority();
+
+        }
+
+    }
+
+    @Benchmark
+    public Request fillAndDrain() {
+
+        PriorityQueue<Request> requestsQueue = new PriorityQueue<Request>();
+        Request last = null;
+
+        for( Request request : this.requests ) {
+            requestsQueue.add(request);
+        }
+
+        while( ! requestsQueue.isEmpty() ) {
+            last = requestsQueue.poll();
+        }
+
+        return last;
+
+    }
+
+    @Benchmark
+    public long fillAndDrainHeap() {
+
+        RequestHeap requestsQueue = new RequestHeap();
+        long last = RequestHeap.NONE;
+
+        for( long priority : this.priorities ) {
+            requestsQueue.add(priority, 0);
+        }
+
+        while( ! requestsQueue.isEmpty() ) {
+            last = requestsQueue.poll();
+        }
+
+        return last;
+
+    }
+
+}
@@ -0,0 +1,77 @@
+package maekawa;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Fork(1)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+public class VectorClockBenchmark {
+
+    @Param({ "5", "50", "500" })
+    public int processes;
+
+    private VectorClock localClock;
+    private VectorClock remoteClock;
+    private String remoteClockData;
+
+    @Setup
+    public void setup() {
+
+        Random random = new Random(42);
+        int[] localVector = new int[this.processes];
+        int[] remoteVector = new int[this.processes];
+
+        for( int i = 0; i < this.processes; i++ ) {
+            localVector[i] = 1000 + random.nextInt(1000);
+            remoteVector[i] = localVector[i] + random.nextInt(10);
+        }
+
+        this.localClock = new VectorClock(localVector, 0);
+        this.remoteClock = new VectorClock(remoteVector, 1);
+        this.remoteClockData = this.remoteClock.toString();
+
+    }
+
+    @Benchmark
+    public VectorClock construct() {
+        return new VectorClock(this.processes, 0);
+    }
+
+    @Benchmark
+    public VectorClock constructFromString() {
+        return new VectorClock(this.remoteClockData);
+    }
+
+    @Benchmark
+    public VectorClock merge() {
+        this.localClock.receivedTimestamp(this.remoteClock);
+        return this.localClock;
+    }
+
+    @Benchmark
+    public boolean happenedBefore() {
+        return this.remoteClock.happenedBefore(this.localClock);
+    }
+
+    @Benchmark
+    public String toText() {
+        return this.remoteClock.toString();
+    }
+
+}
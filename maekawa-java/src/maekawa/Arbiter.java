@@ -0,0 +1,189 @@
+package maekawa;
+
+/**
+ * The arbiter side of Maekawa's algorithm for one lock: who currently holds our grant and who is
+ * waiting for it. Only ever touched from the coordinator thread.
+ */
+public class Arbiter {
+
+    private NodeContext context;
+    private String lockKey;
+
+    private RequestHeap requestsQueue = new RequestHeap();
+
+    // Priority of the request we granted, RequestHeap.NONE when the grant is free.
+    private long currentRequest = RequestHeap.NONE;
+    private boolean haveSentInquire = false;
+    private boolean haveSentRevoke = false;
+
+    public Arbiter(NodeContext context, String lockKey) {
+        this.context = context;
+        this.lockKey = lockKey;
+    }
+
+    public boolean isIdle() {
+        return ( this.requestsQueue.isEmpty() && this.currentRequest == RequestHeap.NONE );
+    }
+
+    public void handleRequest(Request newRequest) {
+
+        long newPriority = newRequest.getPriority();
+
+        // 1. If I have not already given the lock to someone then give the lock to this process.
+        if( this.currentRequest == RequestHeap.NONE ) {
+
+            this.grant(newPriority);
+
+            return;
+
+        }
+
+        // 2. Otherwise I have given the lock to someone else.
+        // If adding this request changes the head (in that that request will become the head), then
+        // add the request to the queue and send a fail to everyone below the head. Send INQUIRE to
+        // the current process if and only if the head request is less than the current request AND
+        // we have not already sent an inquire to the current request.
+        // If adding this request does not change the head, then it needs to be sent a failed because
+        // we are waiting on other request ahead of it.
+        int newFlags = 0;
+
+        if( requestChangesHead(newPriority) ) {
+
+            for( int i = 0; i < this.requestsQueue.size(); i++ ) {
+
+                int processId = RequestHeap.processIdOf(this.requestsQueue.get(i));
+
+                if( ( this.requestsQueue.getFlags(processId) & RequestHeap.SENT_FAILED ) == 0 ) {
+                    Message.send(this.context, Message.Type.FAILED, this.lockKey, processId);
+                    this.requestsQueue.setFlag(processId, RequestHeap.SENT_FAILED);
+                }
+
+            }
+
+            // The incoming request should be honored before the current request, attempt to INQUIRE
+            if( newPriority < this.currentRequest ) {
+
+                if( ! this.haveSentInquire ) {
+                    Message.send(this.context, Message.Type.INQUIRE, this.lockKey, RequestHeap.processIdOf(this.currentRequest));
+                    this.haveSentInquire = true;
+                }
+
+            }
+
+        } else {
+
+            Message.send(this.context, Message.Type.FAILED, this.lockKey, RequestHeap.processIdOf(newPriority));
+            newFlags = RequestHeap.SENT_FAILED;
+
+        }
+
+        // Add the request to the queue.
+        this.requestsQueue.add(newPriority, newFlags);
+        this.context.metrics.arbiterQueueDepth.record(this.requestsQueue.size());
+
+        // 3. A sticky grant is only given back when asked for, and now someone is waiting for it.
+        this.revokeIfWaiting();
+
+    }
+
+    public void handleYield(Message incomingMessage) {
+
+        // 0. Only process a YIELD from the current request, because that is who I expect it from.
+        if( ! this.isHeldBy(incomingMessage.getSourceProcessId()) ) {
+            return;
+        }
+
+        // 1. The current request has yielded to me, so we can add it to the queue.
+        this.requestsQueue.add(this.currentRequest, 0);
+
+        // 2. Send a reply to the request at the top of the queue.
+        this.grant(this.requestsQueue.poll());
+
+    }
+
+    public void handleRelease(Message incomingMessage) {
+
+        // 0. Like a YIELD, only the current request can give the grant back. A stray RELEASE must not free it.
+        if( ! this.isHeldBy(incomingMessage.getSourceProcessId()) ) {
+            return;
+        }
+
+        // 1. Get the next request from the queue, and if we have one send GRANT.
+        this.grant(this.requestsQueue.poll());
+
+    }
+
+    public void handleReleaseAndRequest(Request newRequest) {
+
+        // 0. Only the current request releases the grant, anyone else's new request just waits like a REQUEST.
+        if( ! this.isHeldBy(newRequest.getProcessId()) ) {
+            this.handleRequest(newRequest);
+            return;
+        }
+
+        // 1. The releasing node's next request competes with everyone who is already waiting.
+        this.requestsQueue.add(newRequest.getPriority(), 0);
+        this.context.metrics.arbiterQueueDepth.record(this.requestsQueue.size());
+
+        // 2. Grant to the head right away, which may be the releasing node again. Nobody holds the grant
+        // any more, so there is no one to INQUIRE.
+        this.grant(this.requestsQueue.poll());
+
+        // 3. Like handleRequest() leaves it, everyone waiting behind the head of the queue knows it failed.
+        long head = this.requestsQueue.peek();
+
+        for( int i = 0; i < this.requestsQueue.size(); i++ ) {
+
+            long priority = this.requestsQueue.get(i);
+            int processId = RequestHeap.processIdOf(priority);
+
+            if( priority != head && ( this.requestsQueue.getFlags(processId) & RequestHeap.SENT_FAILED ) == 0 ) {
+                Message.send(this.context, Message.Type.FAILED, this.lockKey, processId);
+                this.requestsQueue.setFlag(processId, RequestHeap.SENT_FAILED);
+            }
+
+        }
+
+    }
+
+    private boolean isHeldBy(int processId) {
+        return ( this.currentRequest != RequestHeap.NONE && processId == RequestHeap.processIdOf(this.currentRequest) );
+    }
+
+    private void grant(long priority) {
+
+        this.currentRequest = priority;
+        this.haveSentInquire = false;
+        this.haveSentRevoke = false;
+
+        if( priority != RequestHeap.NONE ) {
+            Message.send(this.context, Message.Type.GRANT, this.lockKey, RequestHeap.processIdOf(priority));
+            this.revokeIfWaiting();
+        }
+
+    }
+
+    // A holder that got an INQUIRE gives a sticky grant back after its CS as well, so one of the two is enough.
+    private void revokeIfWaiting() {
+
+        if( ! Node.stickyGrantsMode || this.requestsQueue.isEmpty() || this.haveSentInquire || this.haveSentRevoke ) {
+            return;
+        }
+
+        Message.send(this.context, Message.Type.REVOKE, this.lockKey, RequestHeap.processIdOf(this.currentRequest));
+        this.haveSentRevoke = true;
+
+    }
+
+    private boolean requestChangesHead(long incomingPriority) {
+
+        // Return true if queue is empty.
+        if( this.requestsQueue.isEmpty() ) {
+            return true;
+        }
+
+        return ( this.requestsQueue.peek() > incomingPriority );
+
+    }
+
+}
@@ -0,0 +1,93 @@
+package maekawa;
+
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * How long each arbiter recently took to GRANT our requests, from the REQUEST going out to its
+ * GRANT coming back. An arbiter sitting in many quorums queues more requests and grants later, so
+ * this tells the hotspots apart without the arbiters reporting anything. Recorded on the coordinator
+ * thread, read by the application thread picking the next quorum.
+ */
+public class ArbiterLatencies {
+
+    // An arbiter we stopped asking has no fresh observations, after a while it is trusted again.
+    private static final long MAX_AGE_NANOS = TimeUnit.SECONDS.toNanos(1);
+
+    // Slow means half again the median and at least MIN_SLOWDOWN_NANOS more, below that it is jitter. GRANT
+    // latencies include waiting for the other requesters, which is the same at every arbiter, so a hotspot
+    // rarely shows twice the median.
+    private static final long MIN_SLOWDOWN_NANOS = TimeUnit.MILLISECONDS.toNanos(1);
+    private static final int MIN_OBSERVED = 3;
+
+    private AtomicLongArray latencies;
+    private AtomicLongArray observedAt;
+
+    public ArbiterLatencies(int totalNodes) {
+        this.latencies = new AtomicLongArray(totalNodes);
+        this.observedAt = new AtomicLongArray(totalNodes);
+    }
+
+    // Moving average over the last few GRANTs, a stale one starts over.
+    public void record(int arbiterId, long latencyNanos) {
+
+        long now = System.nanoTime();
+        long previous = this.latencies.get(arbiterId);
+
+        if( previous != 0 && now - this.observedAt.get(arbiterId) < MAX_AGE_NANOS ) {
+            latencyNanos = (3 * previous + latencyNanos) / 4;
+        }
+
+        this.latencies.set(arbiterId, Math.max(1, latencyNanos));
+        this.observedAt.set(arbiterId, now);
+
+    }
+
+    // Zero if there is no recent observation.
+    public long get(int arbiterId) {
+
+        if( System.nanoTime() - this.observedAt.get(arbiterId) >= MAX_AGE_NANOS ) {
+            return 0;
+        }
+
+        return this.latencies.get(arbiterId);
+
+    }
+
+    // The arbiters that recently took much longer than the median one, empty until enough were observed.
+    public Set<Integer> slowArbiters() {
+
+        long[] recent = new long[this.latencies.length()];
+        int observed = 0;
+
+        for( int arbiterId = 0; arbiterId < recent.length; arbiterId++ ) {
+            long latency = this.get(arbiterId);
+            if( latency != 0 ) {
+                recent[observed++] = latency;
+            }
+        }
+
+        HashSet<Integer> slowArbiters = new HashSet<Integer>();
+
+        if( observed < MIN_OBSERVED ) {
+            return slowArbiters;
+        }
+
+        Arrays.sort(recent, 0, observed);
+        long median = recent[observed / 2];
+        long threshold = Math.max(median + median / 2, median + MIN_SLOWDOWN_NANOS);
+
+        for( int arbiterId = 0; arbiterId < recent.length; arbiterId++ ) {
+            if( this.get(arbiterId) > threshold ) {
+                slowArbiters.add(arbiterId);
+            }
+        }
+
+        return slowArbiters;
+
+    }
+
+}
@@ -0,0 +1,389 @@
+package maekawa;
+
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.charset.Charset;
+import java.util.Random;
+
+/**
+ * Frame layout, all integers are varints:
+ *
+ *   length, type byte, source id (zig-zag), payload
+ *
+ * where the payload is the clock for protocol messages, (node id, request id, start, end) for DEBUG
+ * and empty for FINISHED. A vector clock is written as (owner id, entry count, entries); when the
+ * LAMPORT_CLOCK bit is set in the type byte the clock is a single (owner id, value) pair instead,
+ * and with the DIFFERENTIAL bit it is (owner id, vector sum, entry count, (id, value) pairs).
+ * Messages about a named lock set the LOCK_KEY bit and carry (name length, UTF-8 name) right after
+ * the source id.
+ */
+public class BinaryMessageCodec implements MessageCodec {
+
+    private static final int MAX_VARINT_SIZE = 5;
+    private static final int LAMPORT_CLOCK = 0x40;
+    private static final int DIFFERENTIAL = 0x20;
+    private static final int LOCK_KEY = 0x10;
+
+    private static final Charset UTF8 = Charset.forName("utf-8");
+
+    @Override
+    public int maxEncodedSize(Message message) {
+
+        int payloadSize = 0;
+
+        if( message.getSourceClock() instanceof VectorClock ) {
+            payloadSize = (2 + ((VectorClock) message.getSourceClock()).size()) * MAX_VARINT_SIZE;
+        } else if( message.getSourceClock() instanceof DifferentialTimestamp ) {
+            payloadSize = (3 + 2 * ((DifferentialTimestamp) message.getSourceClock()).size()) * MAX_VARINT_SIZE;
+        } else if( message.getSourceClock() != null ) {
+            payloadSize = 2 * MAX_VARINT_SIZE;
+        } else if( message.isa(Message.Type.DEBUG) ) {
+            payloadSize = 4 * MAX_VARINT_SIZE;
+        }
+
+        if( ! message.getLockKey().equals(Message.DEFAULT_LOCK) ) {
+            payloadSize += MAX_VARINT_SIZE + 3 * message.getLockKey().length();
+        }
+
+        return MAX_VARINT_SIZE + 1 + MAX_VARINT_SIZE + payloadSize;
+
+    }
+
+    @Override
+    public void encode(Message message, ByteBuffer buffer) {
+
+        int sourceProcessId = message.getSourceProcessId();
+        int bodySize = 1 + Varint.size((sourceProcessId << 1) ^ (sourceProcessId >> 31));
+        int typeByte = message.getType().ordinal();
+
+        Timestamp clock = message.getSourceClock();
+        VectorClock vectorClock = ( clock instanceof VectorClock ) ? (VectorClock) clock : null;
+        DifferentialTimestamp differential = ( clock instanceof DifferentialTimestamp ) ? (DifferentialTimestamp) clock : null;
+        int[] debugData = message.isa(Message.Type.DEBUG) ? (int[]) message.data : null;
+        byte[] lockKey = null;
+
+        if( ! message.getLockKey().equals(Message.DEFAULT_LOCK) ) {
+            typeByte |= LOCK_KEY;
+            lockKey = message.getLockKey().getBytes(UTF8);
+            bodySize += Varint.size(lockKey.length) + lockKey.length;
+        }
+
+        if( vectorClock != null ) {
+            bodySize += Varint.size(vectorClock.getOwnerProcessId()) + Varint.size(vectorClock.size());
+            for( int i = 0; i < vectorClock.size(); i++ ) {
+                bodySize += Varint.size(vectorClock.getValue(i));
+            }
+        } else if( differential != null ) {
+            typeByte |= DIFFERENTIAL;
+            bodySize += Varint.size(differential.getOwnerProcessId()) + Varint.size(differential.getLogicalClockValue()) + Varint.size(differential.size());
+            for( int i = 0; i < differential.size(); i++ ) {
+                bodySize += Varint.size(differential.getProcessId(i)) + Varint.size(differential.getValue(i));
+            }
+        } else if( clock != null ) {
+            typeByte |= LAMPORT_CLOCK;
+            bodySize += Varint.size(clock.getOwnerProcessId()) + Varint.size(clock.getLogicalClockValue());
+        } else if( debugData != null ) {
+            for( int value : debugData ) {
+                bodySize += Varint.size(value);
+            }
+        }
+
+        Varint.write(buffer, bodySize);
+        buffer.put((byte) typeByte);
+        Varint.writeSigned(buffer, sourceProcessId);
+
+        if( lockKey != null ) {
+            Varint.write(buffer, lockKey.length);
+            buffer.put(lockKey);
+        }
+
+        if( vectorClock != null ) {
+            Varint.write(buffer, vectorClock.getOwnerProcessId());
+            Varint.write(buffer, vectorClock.size());
+            for( int i = 0; i < vectorClock.size(); i++ ) {
+                Varint.write(buffer, vectorClock.getValue(i));
+            }
+        } else if( differential != null ) {
+            Varint.write(buffer, differential.getOwnerProcessId());
+            Varint.write(buffer, differential.getLogicalClockValue());
+            Varint.write(buffer, differential.size());
+            for( int i = 0; i < differential.size(); i++ ) {
+                Varint.write(buffer, differential.getProcessId(i));
+                Varint.write(buffer, differential.getValue(i));
+            }
+        } else if( clock != null ) {
+            Varint.write(buffer, clock.getOwnerProcessId());
+            Varint.write(buffer, clock.getLogicalClockValue());
+        } else if( debugData != null ) {
+            for( int value : debugData ) {
+                Varint.write(buffer, value);
+            }
+        }
+
+    }
+
+    @Override
+    public boolean accepts(String lockKey) {
+        return true;
+    }
+
+    @Override
+    public Message decode(ByteBuffer buffer) {
+
+        int frameStart = buffer.position();
+        int bodySize;
+
+        // 1. Make sure the whole frame has arrived before touching it.
+        try {
+            bodySize = Varint.read(buffer);
+        } catch (BufferUnderflowException e) {
+            buffer.position(frameStart);
+            return null;
+        }
+
+        if( bodySize < 1 || bodySize > MAX_FRAME_SIZE - (buffer.position() - frameStart) ) {
+            throw new IllegalArgumentException(String.format("Malformed frame length %d", bodySize));
+        }
+
+        if( buffer.remaining() < bodySize ) {
+            buffer.position(frameStart);
+            return null;
+        }
+
+        int frameEnd = buffer.position() + bodySize;
+        int limit = buffer.limit();
+        Message message = null;
+
+        // 2. Decode the header and the payload for the message type, never reading past the frame. A frame
+        // that does not decode is skipped like an unknown message, the next one starts at frameEnd anyway.
+        buffer.limit(frameEnd);
+
+        try {
+            message = this.decodeBody(buffer);
+        } catch (RuntimeException exception) {
+            message = null;
+        } finally {
+            buffer.limit(limit);
+        }
+
+        // 3. Always consume the full frame, even if it carried something we do not understand.
+        buffer.position(frameEnd);
+
+        return message;
+
+    }
+
+    private Message decodeBody(ByteBuffer buffer) {
+
+        int typeByte = buffer.get();
+        int typeOrdinal = typeByte & ~(LAMPORT_CLOCK | DIFFERENTIAL | LOCK_KEY);
+        int sourceProcessId = Varint.readSigned(buffer);
+        String lockKey = Message.DEFAULT_LOCK;
+
+        if( (typeByte & LOCK_KEY) != 0 ) {
+            byte[] lockKeyData = new byte[Varint.read(buffer)];
+            buffer.get(lockKeyData);
+            lockKey = new String(lockKeyData, UTF8);
+        }
+
+        Message message = null;
+
+        if( typeOrdinal >= 0 && typeOrdinal < Message.Type.values().length ) {
+
+            Message.Type type = Message.Type.values()[typeOrdinal];
+
+            if( type == Message.Type.DEBUG ) {
+                message = new Message(type, sourceProcessId, null);
+                message.data = new int[] { Varint.read(buffer), Varint.read(buffer), Varint.read(buffer), Varint.read(buffer) };
+            } else if( type == Message.Type.FINISHED ) {
+                message = new Message(type, sourceProcessId, null);
+            } else if( (typeByte & LAMPORT_CLOCK) != 0 ) {
+                int ownerProcessId = Varint.read(buffer);
+                message = new Message(type, sourceProcessId, new LamportClock(Varint.read(buffer), ownerProcessId), lockKey);
+            } else if( (typeByte & DIFFERENTIAL) != 0 ) {
+                int ownerProcessId = Varint.read(buffer);
+                int logicalClockValue = Varint.read(buffer);
+                int[] processIds = new int[Varint.read(buffer)];
+                int[] values = new int[processIds.length];
+                for( int i = 0; i < processIds.length; i++ ) {
+                    processIds[i] = Varint.read(buffer);
+                    values[i] = Varint.read(buffer);
+                }
+                message = new Message(type, sourceProcessId, new DifferentialTimestamp(ownerProcessId, logicalClockValue, processIds, values), lockKey);
+            } else {
+                int ownerProcessId = Varint.read(buffer);
+                int[] vector = new int[Varint.read(buffer)];
+                for( int i = 0; i < vector.length; i++ ) {
+                    vector[i] = Varint.read(buffer);
+                }
+                message = new Message(type, sourceProcessId, VectorClock.wrap(vector, ownerProcessId), lockKey);
+            }
+
+        }
+
+        return message;
+
+    }
+
+    // Round trips random messages of every type and clock kind, one frame at a time and back to back,
+    // and checks that a frame cut short decodes to nothing. Exits with 1 if any check failed.
+    public static void main(String[] args) {
+
+        BinaryMessageCodec codec = new BinaryMessageCodec();
+        Random random = new Random(( args.length > 0 ) ? Long.parseLong(args[0]) : 1);
+        String[] lockKeys = { Message.DEFAULT_LOCK, "a", "verrou-\u00e9t\u00e9", "\u65e5\u672c\u8a9e", "with space,(and) separators" };
+        int failures = 0;
+
+        {
+            System.out.println("===BEGIN TEST 1===");
+
+            int checked = 0;
+
+            for( int i = 0; i < 100000; i++ ) {
+
+                Message message = randomMessage(random, lockKeys);
+                ByteBuffer buffer = ByteBuffer.allocate(codec.maxEncodedSize(message));
+                codec.encode(message, buffer);
+                buffer.flip();
+
+                Message decoded = codec.decode(buffer);
+
+                if( decoded == null || ! sameMessage(message, decoded) || buffer.hasRemaining() ) {
+                    System.out.printf("Round trip failed: %s decoded as %s\n", message, decoded);
+                    failures++;
+                }
+
+                checked++;
+
+            }
+
+            System.out.printf("Single frames round tripped (100000): %d\n", checked - failures);
+
+            System.out.println("===END TEST 1===");
+        }
+
+        {
+            System.out.println("===BEGIN TEST 2===");
+
+            int mismatches = 0;
+
+            for( int i = 0; i < 1000; i++ ) {
+
+                Message[] messages = new Message[1 + random.nextInt(50)];
+                int size = 0;
+
+                for( int j = 0; j < messages.length; j++ ) {
+                    messages[j] = randomMessage(random, lockKeys);
+                    size += codec.maxEncodedSize(messages[j]);
+                }
+
+                ByteBuffer buffer = ByteBuffer.allocate(size);
+
+                for( Message message : messages ) {
+                    codec.encode(message, buffer);
+                }
+
+                buffer.flip();
+
+                // Every strict prefix of the first frame is incomplete and must leave the position alone.
+                ByteBuffer prefix = buffer.duplicate();
+                prefix.limit(random.nextInt(codec.frameSize(buffer)));
+
+                if( codec.decode(prefix) != null || prefix.position() != 0 ) {
+                    System.out.printf("Decoded a frame cut to %d bytes\n", prefix.limit());
+                    mismatches++;
+                }
+
+                for( Message message : messages ) {
+
+                    Message decoded = codec.decode(buffer);
+
+                    if( decoded == null || ! sameMessage(message, decoded) ) {
+                        System.out.printf("Back to back frames failed: %s decoded as %s\n", message, decoded);
+                        mismatches++;
+                    }
+
+                }
+
+                if( buffer.hasRemaining() ) {
+                    System.out.printf("%d bytes left after %d frames\n", buffer.remaining(), messages.length);
+                    mismatches++;
+                }
+
+            }
+
+            System.out.printf("Batches and cut frames failing (0): %d\n", mismatches);
+            failures += mismatches;
+
+            System.out.println("===END TEST 2===");
+        }
+
+        System.exit(( failures == 0 ) ? 0 : 1);
+
+    }
+
+    // Length prefix included.
+    private int frameSize(ByteBuffer buffer) {
+
+        ByteBuffer frame = buffer.duplicate();
+        int bodySize = Varint.read(frame);
+
+        return frame.position() - buffer.position() + bodySize;
+
+    }
+
+    private static Message randomMessage(Random random, String[] lockKeys) {
+
+        Message.Type type = Message.Type.values()[random.nextInt(Message.Type.values().length)];
+        int sourceProcessId = random.nextInt(1000);
+
+        if( type == Message.Type.DEBUG ) {
+            return Message.debug(randomValue(random), randomValue(random), randomValue(random), randomValue(random));
+        }
+
+        if( type == Message.Type.FINISHED ) {
+            return new Message(type, ( random.nextBoolean() ) ? -1 : sourceProcessId, null);
+        }
+
+        Timestamp clock;
+        int ownerProcessId = random.nextInt(1000);
+
+        switch( random.nextInt(3) ) {
+
+            case 0:
+                clock = new LamportClock(randomValue(random), ownerProcessId);
+                break;
+
+            case 1:
+                int[] processIds = new int[random.nextInt(20)];
+                int[] values = new int[processIds.length];
+                for( int i = 0; i < processIds.length; i++ ) {
+                    processIds[i] = random.nextInt(1000);
+                    values[i] = randomValue(random);
+                }
+                clock = new DifferentialTimestamp(ownerProcessId, randomValue(random), processIds, values);
+                break;
+
+            default:
+                int[] vector = new int[1 + random.nextInt(40)];
+                for( int i = 0; i < vector.length; i++ ) {
+                    vector[i] = randomValue(random);
+                }
+                clock = new VectorClock(vector, ownerProcessId);
+
+        }
+
+        return new Message(type, sourceProcessId, clock, lockKeys[random.nextInt(lockKeys.length)]);
+
+    }
+
+    // Mostly small values like real clocks, sometimes up to the largest int to exercise 5 byte varints.
+    private static int randomValue(Random random) {
+        return ( random.nextInt(10) == 0 ) ? random.nextInt(Integer.MAX_VALUE) : random.nextInt(300);
+    }
+
+    private static boolean sameMessage(Message message, Message decoded) {
+        return message.toString().equals(decoded.toString()) && message.getLockKey().equals(decoded.getLockKey());
+    }
+
+}
@@ -0,0 +1,83 @@
+package maekawa;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+
+/**
+ * A node's CS executions appended to a memory-mapped file, instead of a DEBUG message to node 0
+ * for each of them. The file is a header followed by fixed-width records:
+ *
+ *   header: magic, record size, record count (long)
+ *   record: node id, request id, start time, end time
+ *
+ * all big-endian. The file is mapped CHUNK_SIZE bytes at a time, so it grows in chunks and its
+ * tail past the record count is unused. CSLogVerifier checks the logs of all nodes afterwards.
+ */
+public class CSEventLog {
+
+    public static final int MAGIC = 0x4D4B4353;
+    public static final int HEADER_SIZE = 16;
+    public static final int RECORD_SIZE = 16;
+
+    private static final int CHUNK_SIZE = RECORD_SIZE * 65536;
+
+    private RandomAccessFile file;
+    private FileChannel channel;
+    private MappedByteBuffer header;
+    private MappedByteBuffer chunk;
+    private long chunkStart;
+    private long count = 0;
+
+    public static File fileFor(String directory, int nodeId) {
+        return new File(directory, String.format("cs-log-%d.bin", nodeId));
+    }
+
+    // Starts a new log, replacing whatever an earlier run left in the file.
+    public CSEventLog(File path) throws IOException {
+
+        this.file = new RandomAccessFile(path, "rw");
+        this.file.setLength(0);
+        this.channel = this.file.getChannel();
+
+        this.header = this.channel.map(FileChannel.MapMode.READ_WRITE, 0, HEADER_SIZE);
+        this.header.putInt(0, MAGIC);
+        this.header.putInt(4, RECORD_SIZE);
+        this.header.putLong(8, 0);
+
+        this.chunkStart = HEADER_SIZE;
+        this.chunk = this.channel.map(FileChannel.MapMode.READ_WRITE, this.chunkStart, CHUNK_SIZE);
+
+    }
+
+    public void append(int nodeId, int requestId, int startTime, int endTime) throws IOException {
+
+        if( ! this.chunk.hasRemaining() ) {
+            this.chunkStart += CHUNK_SIZE;
+            this.chunk = this.channel.map(FileChannel.MapMode.READ_WRITE, this.chunkStart, CHUNK_SIZE);
+        }
+
+        this.chunk.putInt(nodeId);
+        this.chunk.putInt(requestId);
+        this.chunk.putInt(startTime);
+        this.chunk.putInt(endTime);
+
+        // The count goes last, a reader never sees a record that is only half written.
+        this.header.putLong(8, ++this.count);
+
+    }
+
+    public long getCount() {
+        return this.count;
+    }
+
+    public void close() throws IOException {
+        this.chunk.force();
+        this.header.force();
+        this.channel.close();
+        this.file.close();
+    }
+
+}
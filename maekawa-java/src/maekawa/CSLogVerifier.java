@@ -0,0 +1,281 @@
+package maekawa;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.IntBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+/**
+ * Checks the CSEventLogs of all nodes for mutual exclusion after a run, on every core: the logs are
+ * mapped and read in parallel, the executions sorted by start time with a fork-join merge sort and
+ * each one checked against the execution with the latest end among those starting before it. If
+ * any earlier execution overlaps it, that one does.
+ */
+public class CSLogVerifier {
+
+    private static final int CHUNK = 1 << 16;
+    private static final int MAX_REPORTED = 10;
+
+    public static void main(String[] args) {
+
+        if( args.length < 1 ) {
+            System.out.println("Usage: CSLogVerifier <log directory or cs-log files...>");
+            System.exit(1);
+        }
+
+        ArrayList<File> logs = new ArrayList<File>();
+
+        for( String arg : args ) {
+
+            File path = new File(arg);
+            File[] files = path.isDirectory() ? path.listFiles() : new File[] { path };
+
+            for( File file : ( files == null ) ? new File[0] : files ) {
+                if( file.getName().startsWith("cs-log-") && file.getName().endsWith(".bin") ) {
+                    logs.add(file);
+                }
+            }
+
+        }
+
+        try {
+
+            long startTime = System.nanoTime();
+            CSLogVerifier verifier = new CSLogVerifier(logs.toArray(new File[logs.size()]));
+            int conflicts = verifier.verify();
+            double elapsedSeconds = (System.nanoTime() - startTime) / 1e9;
+
+            // Nothing to check is not a successful check, the logs were probably not where we looked.
+            if( verifier.size() == 0 ) {
+                System.out.printf("No records in %d logs, nothing was checked\n", logs.size());
+                System.exit(1);
+            }
+
+            System.out.printf("%d executions from %d logs checked in %.3f s, %d overlap an earlier one\n", verifier.size(), logs.size(), elapsedSeconds, conflicts);
+            System.exit(( conflicts == 0 ) ? 0 : 2);
+
+        } catch (IOException e) {
+            System.err.printf("Failed to read the logs: %s\n", e);
+            System.exit(1);
+        }
+
+    }
+
+    private VerificationRecords records;
+
+    // Record indexes sorted by start time, and the conflicts found in each chunk of them.
+    private int[] order;
+    private int[] conflicts;
+    private int reported = 0;
+
+    public CSLogVerifier(File[] logs) throws IOException {
+
+        // 1. Map every log and find where its records go in the columns.
+        MappedByteBuffer[] mappedLogs = new MappedByteBuffer[logs.length];
+        int[] offsets = new int[logs.length + 1];
+
+        for( int i = 0; i < logs.length; i++ ) {
+
+            RandomAccessFile file = new RandomAccessFile(logs[i], "r");
+
+            try {
+
+                if( file.length() < CSEventLog.HEADER_SIZE ) {
+                    throw new IOException(String.format("%s is not a CS log", logs[i]));
+                }
+
+                mappedLogs[i] = file.getChannel().map(FileChannel.MapMode.READ_ONLY, 0, file.length());
+
+                if( mappedLogs[i].getInt(0) != CSEventLog.MAGIC || mappedLogs[i].getInt(4) != CSEventLog.RECORD_SIZE ) {
+                    throw new IOException(String.format("%s is not a CS log", logs[i]));
+                }
+
+                offsets[i + 1] = offsets[i] + (int) mappedLogs[i].getLong(8);
+
+            } finally {
+                file.close();
+            }
+
+        }
+
+        this.records = new VerificationRecords(offsets[logs.length]);
+
+        // 2. Copy them into the columns, one task per log.
+        final ArrayList<RecursiveAction> readers = new ArrayList<RecursiveAction>();
+
+        for( int i = 0; i < logs.length; i++ ) {
+            readers.add(new LogReader(mappedLogs[i], offsets[i], offsets[i + 1] - offsets[i]));
+        }
+
+        ForkJoinPool.commonPool().invoke(new RecursiveAction() {
+            @Override
+            protected void compute() {
+                invokeAll(readers);
+            }
+        });
+
+    }
+
+    private class LogReader extends RecursiveAction {
+
+        private static final long serialVersionUID = 1L;
+
+        private MappedByteBuffer log;
+        private int offset, count;
+
+        LogReader(MappedByteBuffer log, int offset, int count) {
+            this.log = log;
+            this.offset = offset;
+            this.count = count;
+        }
+
+        @Override
+        protected void compute() {
+
+            this.log.position(CSEventLog.HEADER_SIZE);
+            IntBuffer buffer = this.log.asIntBuffer();
+
+            for( int i = this.offset; i < this.offset + this.count; i++ ) {
+                records.set(i, buffer.get(), buffer.get(), buffer.get(), buffer.get());
+            }
+
+        }
+
+    }
+
+    public int size() {
+        return this.records.size();
+    }
+
+    // Returns how many executions overlap an earlier one and prints the first few.
+    public int verify() {
+
+        int size = this.size();
+
+        if( size == 0 ) {
+            return 0;
+        }
+
+        // 1. Sort by start time, Arrays.parallelSort is a fork-join merge sort. Ties keep the record order.
+        long[] keys = new long[size];
+
+        for( int i = 0; i < size; i++ ) {
+            keys[i] = ((long) this.records.getStartTime(i) << 32) | i;
+        }
+
+        Arrays.parallelSort(keys);
+
+        this.order = new int[size];
+
+        for( int i = 0; i < size; i++ ) {
+            this.order[i] = (int) keys[i];
+        }
+
+        // 2. The latest end of each chunk in parallel, then carried across the chunks.
+        int chunks = (size + CHUNK - 1) / CHUNK;
+        int[] chunkLatest = new int[chunks];
+
+        ForkJoinPool.commonPool().invoke(new ChunkTask(0, chunks, chunkLatest, null));
+
+        int[] carried = new int[chunks];
+        int latest = -1;
+
+        for( int chunk = 0; chunk < chunks; chunk++ ) {
+            carried[chunk] = latest;
+            latest = this.later(latest, chunkLatest[chunk]);
+        }
+
+        // 3. Check every execution against it, again per chunk.
+        this.conflicts = new int[chunks];
+
+        ForkJoinPool.commonPool().invoke(new ChunkTask(0, chunks, null, carried));
+
+        int total = 0;
+
+        for( int chunkConflicts : this.conflicts ) {
+            total += chunkConflicts;
+        }
+
+        return total;
+
+    }
+
+    // The one of two record indexes that ends later, -1 being none.
+    private int later(int index, int otherIndex) {
+
+        if( index == -1 ) {
+            return otherIndex;
+        }
+
+        if( otherIndex == -1 ) {
+            return index;
+        }
+
+        return ( this.records.getEndTime(otherIndex) > this.records.getEndTime(index) ) ? otherIndex : index;
+
+    }
+
+    // Without carried values it finds the latest end of each chunk, with them it checks each chunk.
+    private class ChunkTask extends RecursiveAction {
+
+        private static final long serialVersionUID = 1L;
+
+        private int firstChunk, lastChunk;
+        private int[] chunkLatest, carried;
+
+        ChunkTask(int firstChunk, int lastChunk, int[] chunkLatest, int[] carried) {
+            this.firstChunk = firstChunk;
+            this.lastChunk = lastChunk;
+            this.chunkLatest = chunkLatest;
+            this.carried = carried;
+        }
+
+        @Override
+        protected void compute() {
+
+            if( this.lastChunk - this.firstChunk > 1 ) {
+                int middle = (this.firstChunk + this.lastChunk) >>> 1;
+                invokeAll(new ChunkTask(this.firstChunk, middle, this.chunkLatest, this.carried), new ChunkTask(middle, this.lastChunk, this.chunkLatest, this.carried));
+                return;
+            }
+
+            int chunk = this.firstChunk;
+            int latest = ( this.carried == null ) ? -1 : this.carried[chunk];
+            int end = Math.min(order.length, (chunk + 1) * CHUNK);
+
+            for( int position = chunk * CHUNK; position < end; position++ ) {
+
+                int index = order[position];
+
+                if( this.carried != null && latest != -1 && records.overlap(index, latest) ) {
+                    report(index, latest);
+                    conflicts[chunk]++;
+                }
+
+                latest = later(latest, index);
+
+            }
+
+            if( this.chunkLatest != null ) {
+                this.chunkLatest[chunk] = latest;
+            }
+
+        }
+
+    }
+
+    private synchronized void report(int index, int otherIndex) {
+
+        if( this.reported++ < MAX_REPORTED ) {
+            System.out.printf("Mutual exclusion violated: %s overlaps %s\n", this.records.describe(index), this.records.describe(otherIndex));
+        }
+
+    }
+
+}
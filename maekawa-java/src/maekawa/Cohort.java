@@ -0,0 +1,83 @@
+package maekawa;
+
+import java.util.ArrayDeque;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * The threads of one node that want the same lock. Only the first one asks the quorum, the others
+ * queue here and the critical section is passed from one to the next while the node keeps its
+ * grants. After fairnessBound critical sections in a row the node goes back to the quorum, so other
+ * nodes get their turn.
+ */
+public class Cohort {
+
+    private int fairnessBound;
+
+    // Set while one of our threads acquires or holds the lock, guarded by this.
+    private boolean busy = false;
+    private ArrayDeque<CompletableFuture<Integer>> waiters = new ArrayDeque<CompletableFuture<Integer>>();
+
+    // Critical sections passed on since the last quorum round, only touched by the thread holding the lock.
+    private int localPasses = 0;
+
+    public Cohort(int fairnessBound) {
+        this.fairnessBound = fairnessBound;
+    }
+
+    // Returns true if the caller is first and must get the lock from the quorum, otherwise the future is
+    // completed once the lock is passed on to it.
+    public synchronized boolean join(CompletableFuture<Integer> future) {
+
+        if( ! this.busy ) {
+            this.busy = true;
+            return true;
+        }
+
+        this.waiters.add(future);
+
+        return false;
+
+    }
+
+    // Called when leaving the critical section, returns the thread to pass the lock to. The cohort stays
+    // busy either way, the caller still holds or acquires the lock.
+    public synchronized CompletableFuture<Integer> nextWaiter() {
+        return this.waiters.poll();
+    }
+
+    // Called once the node no longer holds or acquires the lock. Returns a thread that joined meanwhile,
+    // which is now first and must get the lock from the quorum itself, otherwise the cohort is free again.
+    public synchronized CompletableFuture<Integer> leave() {
+
+        CompletableFuture<Integer> next = this.waiters.poll();
+
+        if( next == null ) {
+            this.busy = false;
+        }
+
+        this.localPasses = 0;
+
+        return next;
+
+    }
+
+    // Called when the holding thread asks the quorum again itself, the cohort stays busy.
+    public void newQuorumRound() {
+        this.localPasses = 0;
+    }
+
+    // Whether the next waiter may enter without a new quorum round, counting the pass if so.
+    public boolean passLocally() {
+
+        if( this.localPasses + 1 < this.fairnessBound ) {
+            this.localPasses++;
+            return true;
+        }
+
+        this.localPasses = 0;
+
+        return false;
+
+    }
+
+}
@@ -0,0 +1,200 @@
+package maekawa;
+
+import java.io.BufferedReader;
+import java.io.FileNotFoundException;
+import java.io.FileReader;
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Set;
+
+public class ConfigFile {
+
+    public static ArrayList<String[]> tokenize(String configFilePath) throws IOException {
+
+        BufferedReader reader = new BufferedReader(new FileReader(configFilePath));
+        ArrayList<String[]> tokenizedLines = new ArrayList<String[]>();
+
+        while(reader.ready()) {
+
+            String line = reader.readLine().trim();
+
+            if ( line.length() == 0 || line.charAt(0) == '#' ) {
+                continue;
+            }
+
+            tokenizedLines.add(line.split("\\s+"));
+
+        }
+
+        reader.close();
+
+        return tokenizedLines;
+
+    }
+
+    public static Node process(int nodeId, ArrayList<String[]> tokenizedLines) {
+        return process(nodeId, tokenizedLines, new TcpTransport(Node.codec));
+    }
+
+    public static Node process(int nodeId, ArrayList<String[]> tokenizedLines, Transport transport) {
+        return process(nodeId, tokenizedLines, transport, quorumSystem(tokenizedLines));
+    }
+
+    // The nodes of a LocalCluster share one quorum system, it is only built and checked once.
+    public static Node process(int nodeId, ArrayList<String[]> tokenizedLines, Transport transport, QuorumSystem quorumSystem) {
+
+        // 1. Create the context holding this node's identity and topology.
+        NodeContext context = new NodeContext(nodeId, transport);
+
+        // 2. Create the exponential delay object
+        ExponentialDelay exponentialDelay = new ExponentialDelay(Integer.parseInt(tokenizedLines.get(0)[1]), Integer.parseInt(tokenizedLines.get(0)[2]));
+
+        // 3. Fill in the addresses of every node and the quorum members of this node.
+        int totalNodes = Integer.parseInt(tokenizedLines.get(0)[0]);
+        context.quorumSystem = quorumSystem;
+        Set<Integer> quorumMemberIds = context.quorumSystem.selectQuorum(nodeId, Collections.<Integer>emptySet());
+
+        for( String[] nodeAddress : tokenizedLines.subList(1, 1 + totalNodes) ) {
+
+            Integer id = Integer.valueOf(nodeAddress[0]);
+            InetSocketAddress qualifiedAddress = new InetSocketAddress(nodeAddress[1], Integer.parseInt(nodeAddress[2]));
+
+            context.nodeAddresses.put(id, qualifiedAddress);
+
+            if( quorumMemberIds.contains(id) ) {
+                context.quorumMembers.put(id, qualifiedAddress);
+            }
+
+        }
+
+        // 4. Create the node object, this also opens its transport.
+        return new Node(context, totalNodes, Integer.parseInt(tokenizedLines.get(0)[3]), exponentialDelay);
+
+    }
+
+    // The quorum system named by the header: tree and hierarchical pick a quorum per request, anything else
+    // is a static quorum per node. Throws an IllegalArgumentException if the quorums do not intersect.
+    public static QuorumSystem quorumSystem(ArrayList<String[]> tokenizedLines) {
+
+        String[] header = tokenizedLines.get(0);
+        int totalNodes = Integer.parseInt(header[0]);
+        QuorumSystem quorumSystem = null;
+
+        if( header.length > 4 && header[4].equals("tree") ) {
+
+            quorumSystem = new TreeQuorumSystem(totalNodes);
+
+        } else if( header.length > 4 && header[4].equals("hierarchical") ) {
+
+            quorumSystem = new HierarchicalQuorumSystem(totalNodes);
+
+        } else {
+
+            // quorums() checks them already.
+            return new StaticQuorumSystem(quorums(tokenizedLines));
+
+        }
+
+        // The quorums picked when nothing is avoided must intersect like static ones, alternatives are built to.
+        ArrayList<HashSet<Integer>> quorums = new ArrayList<HashSet<Integer>>(totalNodes);
+
+        for( int nodeId = 0; nodeId < totalNodes; nodeId++ ) {
+            quorums.add(new HashSet<Integer>(quorumSystem.selectQuorum(nodeId, Collections.<Integer>emptySet())));
+        }
+
+        checkIntersections(quorums, totalNodes);
+
+        return quorumSystem;
+
+    }
+
+    // The quorums of all nodes, generated when the header names a generator and read from the file otherwise.
+    // Throws an IllegalArgumentException if two of them do not intersect.
+    public static ArrayList<HashSet<Integer>> quorums(ArrayList<String[]> tokenizedLines) {
+
+        String[] header = tokenizedLines.get(0);
+        int totalNodes = Integer.parseInt(header[0]);
+        ArrayList<HashSet<Integer>> quorums = null;
+
+        if( header.length > 4 ) {
+
+            quorums = quorumGenerator(header[4]).generate(totalNodes);
+
+        } else {
+
+            quorums = new ArrayList<HashSet<Integer>>(totalNodes);
+
+            for( String[] quorumLine : tokenizedLines.subList(1 + totalNodes, 1 + 2 * totalNodes) ) {
+
+                HashSet<Integer> quorum = new HashSet<Integer>();
+
+                for( String memberId : quorumLine ) {
+                    quorum.add(Integer.parseInt(memberId));
+                }
+
+                quorums.add(quorum);
+
+            }
+
+        }
+
+        checkIntersections(quorums, totalNodes);
+
+        return quorums;
+
+    }
+
+    public static QuorumGenerator quorumGenerator(String name) {
+
+        if( name.equals("grid") ) {
+            return new GridQuorums();
+        }
+
+        if( name.equals("projective-plane") ) {
+            return new ProjectivePlaneQuorums();
+        }
+
+        if( name.equals("cyclic") ) {
+            return new CyclicQuorums();
+        }
+
+        throw new IllegalArgumentException(String.format("Unknown quorum generator '%s', expected grid, projective-plane, cyclic, tree or hierarchical", name));
+
+    }
+
+    // Mutual exclusion only holds if every two quorums share an arbiter.
+    private static void checkIntersections(ArrayList<HashSet<Integer>> quorums, int totalNodes) {
+
+        BitSet[] members = new BitSet[quorums.size()];
+
+        for( int i = 0; i < members.length; i++ ) {
+
+            members[i] = new BitSet(totalNodes);
+
+            for( Integer memberId : quorums.get(i) ) {
+
+                if( memberId < 0 || memberId >= totalNodes ) {
+                    throw new IllegalArgumentException(String.format("Quorum of Node(%d) names Node(%d), which does not exist", i, memberId));
+                }
+
+                members[i].set(memberId);
+
+            }
+
+        }
+
+        for( int i = 0; i < members.length; i++ ) {
+            for( int j = i + 1; j < members.length; j++ ) {
+                if( ! members[i].intersects(members[j]) ) {
+                    throw new IllegalArgumentException(String.format("Quorums of Node(%d) and Node(%d) do not intersect", i, j));
+                }
+            }
+        }
+
+    }
+
+}
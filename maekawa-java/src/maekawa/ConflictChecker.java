@@ -0,0 +1,251 @@
+package maekawa;
+
+import java.util.Arrays;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.Random;
+import java.util.TreeSet;
+
+/**
+ * Checks the CS executions for mutual exclusion as their DEBUG records arrive. Executions that do
+ * not conflict are disjoint, so they are ordered by start and end time alike and a new one can only
+ * overlap the one before or the one after it in the set: O(log n) per record. Every node sends its
+ * records in order, so an execution ending before the last one heard from every node that still has
+ * requests left can overlap nothing that is yet to come and is dropped.
+ */
+public class ConflictChecker {
+
+    private VerificationRecords records;
+    private TreeSet<Integer> openIntervals;
+
+    // Per node the end time of its last record, and how many it still has to send.
+    private int[] lastEndTimes;
+    private int[] remainingRequests;
+    private int watermark = 0;
+
+    private int conflicts = 0;
+
+    public ConflictChecker(final VerificationRecords records, int nodeCount, int requestsPerNode) {
+
+        this.records = records;
+        this.lastEndTimes = new int[nodeCount];
+        this.remainingRequests = new int[nodeCount];
+        Arrays.fill(this.remainingRequests, requestsPerNode);
+
+        // By start time, ties broken by node id.
+        this.openIntervals = new TreeSet<Integer>(new Comparator<Integer>() {
+            @Override
+            public int compare(Integer index, Integer otherIndex) {
+
+                int byStart = Integer.compare(records.getStartTime(index), records.getStartTime(otherIndex));
+
+                if( byStart != 0 ) {
+                    return byStart;
+                }
+
+                int byNode = Integer.compare(records.getNodeId(index), records.getNodeId(otherIndex));
+
+                return ( byNode != 0 ) ? byNode : Integer.compare(index, otherIndex);
+
+            }
+        });
+
+    }
+
+    // Returns the index of an execution checked before that this one overlaps, both are then marked as
+    // conflicting, or -1.
+    public int check(int index) {
+
+        // 1. Compare against the neighbours on either side.
+        int conflict = -1;
+
+        for( Integer neighbour : new Integer[] { this.openIntervals.lower(index), this.openIntervals.higher(index) } ) {
+
+            if( neighbour == null || ! this.records.overlap(index, neighbour) ) {
+                continue;
+            }
+
+            this.records.markConflict(index, neighbour);
+            this.records.markConflict(neighbour, index);
+
+            conflict = ( conflict == -1 ) ? neighbour : conflict;
+
+        }
+
+        if( conflict != -1 ) {
+            this.conflicts++;
+        }
+
+        this.openIntervals.add(index);
+
+        // 2. Drop what no later record can overlap anymore.
+        this.advanceWatermark(index);
+
+        while( ! this.openIntervals.isEmpty() && this.records.getEndTime(this.openIntervals.first()) <= this.watermark ) {
+            this.openIntervals.pollFirst();
+        }
+
+        return conflict;
+
+    }
+
+    private void advanceWatermark(int index) {
+
+        int nodeId = this.records.getNodeId(index);
+
+        if( nodeId < 0 || nodeId >= this.lastEndTimes.length ) {
+            return;
+        }
+
+        boolean wasLowest = ( this.remainingRequests[nodeId] > 0 && this.lastEndTimes[nodeId] == this.watermark );
+
+        this.lastEndTimes[nodeId] = Math.max(this.lastEndTimes[nodeId], this.records.getEndTime(index));
+        this.remainingRequests[nodeId]--;
+
+        // Only the node holding the watermark back can move it.
+        if( ! wasLowest ) {
+            return;
+        }
+
+        int lowest = Integer.MAX_VALUE;
+
+        for( int i = 0; i < this.lastEndTimes.length; i++ ) {
+            if( this.remainingRequests[i] > 0 ) {
+                lowest = Math.min(lowest, this.lastEndTimes[i]);
+            }
+        }
+
+        this.watermark = lowest;
+
+    }
+
+    public int getConflicts() {
+        return this.conflicts;
+    }
+
+    // How many executions are kept to check the next records against.
+    public int getOpenIntervals() {
+        return this.openIntervals.size();
+    }
+
+    // Builds random traces of executions, every node's in order, with an overlap injected now and then,
+    // and feeds their records in random interleavings. The checker must find a conflict exactly when a
+    // brute-force pairwise comparison does, and only report executions that really overlap. Exits with 1
+    // if any check failed.
+    public static void main(String[] args) {
+
+        Random random = new Random(( args.length > 0 ) ? Long.parseLong(args[0]) : 1);
+        int failures = 0;
+
+        {
+            System.out.println("===BEGIN TEST 1===");
+
+            int withOverlaps = 0, largestWindow = 0;
+
+            for( int trial = 0; trial < 2000; trial++ ) {
+
+                int nodeCount = 2 + random.nextInt(6);
+                int requestsPerNode = 1 + random.nextInt(50);
+                ArrayList<ArrayList<int[]>> perNode = randomTrace(random, nodeCount, requestsPerNode);
+
+                // 1. Brute force over every pair.
+                VerificationRecords all = new VerificationRecords();
+
+                for( ArrayList<int[]> executions : perNode ) {
+                    for( int[] execution : executions ) {
+                        all.add(execution);
+                    }
+                }
+
+                int overlappingPairs = 0;
+
+                for( int i = 0; i < all.size(); i++ ) {
+                    for( int j = i + 1; j < all.size(); j++ ) {
+                        overlappingPairs += all.overlap(i, j) ? 1 : 0;
+                    }
+                }
+
+                // 2. The checker sees the records as they would arrive, each node's in order.
+                VerificationRecords records = new VerificationRecords();
+                ConflictChecker checker = new ConflictChecker(records, nodeCount, requestsPerNode);
+                int[] sent = new int[nodeCount];
+
+                for( int k = 0; k < nodeCount * requestsPerNode; k++ ) {
+
+                    int nodeId;
+
+                    do {
+                        nodeId = random.nextInt(nodeCount);
+                    } while( sent[nodeId] == requestsPerNode );
+
+                    int index = records.add(perNode.get(nodeId).get(sent[nodeId]++));
+                    int conflict = checker.check(index);
+
+                    if( conflict != -1 && ! records.overlap(index, conflict) ) {
+                        System.out.printf("Trial %d: %s reported against %s\n", trial, records.describe(index), records.describe(conflict));
+                        failures++;
+                    }
+
+                    largestWindow = Math.max(largestWindow, checker.getOpenIntervals());
+
+                }
+
+                if( ( overlappingPairs > 0 ) != ( checker.getConflicts() > 0 ) ) {
+                    System.out.printf("Trial %d: %d overlapping pairs but %d conflicts found\n", trial, overlappingPairs, checker.getConflicts());
+                    failures++;
+                }
+
+                withOverlaps += ( overlappingPairs > 0 ) ? 1 : 0;
+
+            }
+
+            System.out.printf("Traces with overlaps: %d of 2000, largest window %d, failing (0): %d\n", withOverlaps, largestWindow, failures);
+
+            System.out.println("===END TEST 1===");
+        }
+
+        System.exit(( failures == 0 ) ? 0 : 1);
+
+    }
+
+    // Executions laid out one after another on a shared clock, a few of them starting before the previous
+    // one ended. Returns each node's executions as DEBUG payloads in request order.
+    private static ArrayList<ArrayList<int[]>> randomTrace(Random random, int nodeCount, int requestsPerNode) {
+
+        ArrayList<ArrayList<int[]>> perNode = new ArrayList<ArrayList<int[]>>();
+        int[] lastEndTimes = new int[nodeCount];
+        int time = 1;
+
+        for( int i = 0; i < nodeCount; i++ ) {
+            perNode.add(new ArrayList<int[]>());
+        }
+
+        for( int k = 0; k < nodeCount * requestsPerNode; k++ ) {
+
+            int nodeId;
+
+            do {
+                nodeId = random.nextInt(nodeCount);
+            } while( perNode.get(nodeId).size() == requestsPerNode );
+
+            int startTime = time + 1 + random.nextInt(3);
+
+            if( random.nextInt(100) < 2 ) {
+                startTime -= 3;
+            }
+
+            // A node's own executions never overlap, it sends the next request after leaving the CS.
+            startTime = Math.max(startTime, lastEndTimes[nodeId] + 1);
+            int endTime = startTime + 1 + random.nextInt(5);
+
+            perNode.get(nodeId).add(new int[] { nodeId, perNode.get(nodeId).size() + 1, startTime, endTime });
+            lastEndTimes[nodeId] = endTime;
+            time = Math.max(time, endTime);
+
+        }
+
+        return perNode;
+
+    }
+
+}
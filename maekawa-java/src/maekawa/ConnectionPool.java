@@ -0,0 +1,45 @@
+package maekawa;
+
+import java.net.InetSocketAddress;
+import java.util.HashMap;
+import java.util.Map;
+
+public class ConnectionPool {
+
+    private HashMap<Integer, PeerConnection> connections = new HashMap<Integer, PeerConnection>();
+
+    public ConnectionPool(Map<Integer, InetSocketAddress> nodeAddresses) {
+
+        for( Map.Entry<Integer, InetSocketAddress> nodeAddress : nodeAddresses.entrySet() ) {
+            this.connections.put(nodeAddress.getKey(), new PeerConnection(nodeAddress.getValue()));
+        }
+
+    }
+
+    public PeerConnection get(int nodeId) {
+        return this.connections.get(nodeId);
+    }
+
+    public void startAll() {
+        for( PeerConnection connection : this.connections.values() ) {
+            connection.start();
+        }
+    }
+
+    public void flushAll() {
+        for( PeerConnection connection : this.connections.values() ) {
+            connection.flush();
+        }
+    }
+
+    public Iterable<PeerConnection> getAll() {
+        return this.connections.values();
+    }
+
+    public void closeAll() {
+        for( PeerConnection connection : this.connections.values() ) {
+            connection.close();
+        }
+    }
+
+}
@@ -0,0 +1,209 @@
+package maekawa;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+public class Coordinator extends Thread {
+
+    private static final int MAX_BATCH_SIZE = 256;
+
+    private NodeContext context;
+    private BlockingQueue<Message> incomingMessageQueue;
+
+    // One arbiter per lock that currently has a holder or waiters, idle ones are dropped.
+    private HashMap<String, Arbiter> arbiters = new HashMap<String, Arbiter>();
+
+    // The requesting side: every lock this node is acquiring or holding.
+    private ConcurrentHashMap<String, LockAcquisition> acquisitions = new ConcurrentHashMap<String, LockAcquisition>();
+
+    private AtomicBoolean allRequestsFinished = new AtomicBoolean(false);
+
+    // Nodes writing CS logs tell node 0 when they are done instead of the verification counting their DEBUGs.
+    private int finishedNodes = 0;
+
+    public Coordinator(NodeContext context, BlockingQueue<Message> incomingMessageQueue) {
+        this.context = context;
+        this.incomingMessageQueue = incomingMessageQueue;
+    }
+
+    // Must happen before the REQUEST goes out so the replies find it. Returns false if this node
+    // is already acquiring or holding the lock.
+    public boolean addAcquisition(LockAcquisition acquisition) {
+        return ( this.acquisitions.putIfAbsent(acquisition.getLockKey(), acquisition) == null );
+    }
+
+    public LockAcquisition getAcquisition(String lockKey) {
+        return this.acquisitions.get(lockKey);
+    }
+
+    public LockAcquisition removeAcquisition(String lockKey) {
+        return this.acquisitions.remove(lockKey);
+    }
+
+    public Collection<LockAcquisition> getAcquisitions() {
+        return this.acquisitions.values();
+    }
+
+    @Override
+    public void run() {
+
+        ArrayList<Message> batch = new ArrayList<Message>(MAX_BATCH_SIZE);
+
+        while (true) {
+            try {
+
+                // 1. Take everything that is ready, only block when there is nothing to do.
+                if( this.incomingMessageQueue.drainTo(batch, MAX_BATCH_SIZE) == 0 ) {
+                    batch.add(this.incomingMessageQueue.take());
+                }
+
+                this.context.metrics.incomingQueueDepth.record(batch.size() + this.incomingMessageQueue.size());
+
+                for( Message incomingMessage : batch ) {
+                    long startTime = System.nanoTime();
+                    this.handleMessage(incomingMessage);
+                    this.context.metrics.serviceTime.record(System.nanoTime() - startTime);
+                }
+
+                batch.clear();
+
+                // Everything the batch made us send goes out now, one write per peer.
+                this.context.transport.flush();
+
+                // 2. Only messages change whether we are done, so this is the one place to check it.
+                if( this.allRequestsFinished.get() && this.incomingMessageQueue.isEmpty() && this.arbiters.isEmpty() ) {
+                    return;
+                }
+
+            } catch (InterruptedException e) {}
+        }
+
+    }
+
+    void handleMessage(Message incomingMessage) {
+
+        // 0. If the incoming message is null then it was not a known message type.
+        if( incomingMessage == null ) {
+            return;
+        }
+
+        // 1. Process messages that are from the verification protocol here (no vector clock)
+
+        if ( incomingMessage.isa(Message.Type.FINISHED) ) {
+
+            // 0. A node that is done with its requests, once all of them are everyone can stop.
+            if( incomingMessage.getSourceProcessId() >= 0 ) {
+
+                if( ++this.finishedNodes == this.context.nodeAddresses.size() ) {
+                    this.context.transport.send(this.context.nodeAddresses.keySet(), new Message(Message.Type.FINISHED, -1, null));
+                }
+
+                return;
+
+            }
+
+            // 1. Mark as we are finished and it is now safe to close once closing condition is met.
+            this.allRequestsFinished.set(true);
+
+            // 2. Return; nothing more to do.
+            return;
+
+        }
+
+        if( incomingMessage.isa(Message.Type.DEBUG) ) {
+
+            // 1. If we are not Node 0 then we have no business processing this message.
+            if( this.context.verificationHandler == null ) {
+                return;
+            }
+
+            // 2. Present this message to the verification process.
+            try {
+                this.context.verificationHandler.incomingLogMessages.put((int[]) incomingMessage.data);
+            } catch (InterruptedException e) { }
+
+            return;
+
+        }
+
+        synchronized (this.context.lock) {
+            this.context.clock.receivedTimestamp(incomingMessage.getSourceClock());
+        }
+
+        String lockKey = incomingMessage.getLockKey();
+
+        // 2. Messages to us as an arbiter of the lock.
+        if( incomingMessage.isa(Message.Type.REQUEST) ) {
+
+            Arbiter arbiter = this.arbiters.get(lockKey);
+
+            if( arbiter == null ) {
+                arbiter = new Arbiter(this.context, lockKey);
+                this.arbiters.put(lockKey, arbiter);
+            }
+
+            arbiter.handleRequest(incomingMessage.getRequest());
+
+        }
+
+        else if( incomingMessage.isa(Message.Type.RELEASE_REQUEST) ) {
+
+            Arbiter arbiter = this.arbiters.get(lockKey);
+
+            if( arbiter == null ) {
+                arbiter = new Arbiter(this.context, lockKey);
+                this.arbiters.put(lockKey, arbiter);
+            }
+
+            arbiter.handleReleaseAndRequest(incomingMessage.getRequest());
+
+        }
+
+        else if ( incomingMessage.isa(Message.Type.YIELD) || incomingMessage.isa(Message.Type.RELEASE) ) {
+
+            Arbiter arbiter = this.arbiters.get(lockKey);
+
+            if( arbiter == null ) {
+                return;
+            }
+
+            if( incomingMessage.isa(Message.Type.YIELD) ) {
+                arbiter.handleYield(incomingMessage);
+            } else {
+                arbiter.handleRelease(incomingMessage);
+            }
+
+            if( arbiter.isIdle() ) {
+                this.arbiters.remove(lockKey);
+            }
+
+        }
+
+        // 3. Messages to us as a requester of the lock, ignored if we are no longer acquiring it.
+        else {
+
+            LockAcquisition acquisition = this.acquisitions.get(lockKey);
+
+            if( acquisition == null ) {
+                return;
+            }
+
+            if ( incomingMessage.isa(Message.Type.INQUIRE) ) {
+                acquisition.handleInquire(incomingMessage);
+            } else if ( incomingMessage.isa(Message.Type.FAILED) ) {
+                acquisition.handleFailed(incomingMessage);
+            } else if ( incomingMessage.isa(Message.Type.GRANT) ) {
+                acquisition.handleGrant(incomingMessage);
+            } else if ( incomingMessage.isa(Message.Type.REVOKE) ) {
+                acquisition.handleRevoke(incomingMessage);
+            }
+
+        }
+
+    }
+
+}
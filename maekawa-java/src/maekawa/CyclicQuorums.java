@@ -0,0 +1,106 @@
+package maekawa;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+
+/**
+ * Quorums made by rotating one relaxed difference set D modulo N: the quorum of node i is i + D.
+ * Quorums i + D and j + D meet whenever j - i is the difference of two elements of D, so D has to
+ * produce every difference. D is grown greedily, always adding the element that produces the most
+ * missing differences, which ends up close to the sqrt(N) lower bound and well below the 2 sqrt(N) of a grid.
+ * Every node is in as many quorums as any other, so the load is spread evenly.
+ */
+public class CyclicQuorums implements QuorumGenerator {
+
+    @Override
+    public ArrayList<HashSet<Integer>> generate(int totalNodes) {
+
+        int[] differenceSet = differenceSet(totalNodes);
+        ArrayList<HashSet<Integer>> quorums = new ArrayList<HashSet<Integer>>(totalNodes);
+
+        for( int nodeId = 0; nodeId < totalNodes; nodeId++ ) {
+
+            HashSet<Integer> quorum = new HashSet<Integer>();
+
+            for( int d : differenceSet ) {
+                quorum.add((nodeId + d) % totalNodes);
+            }
+
+            quorums.add(quorum);
+
+        }
+
+        return quorums;
+
+    }
+
+    public static int[] differenceSet(int totalNodes) {
+
+        // 1. Start from 0, so that every node is part of its own quorum.
+        ArrayList<Integer> elements = new ArrayList<Integer>();
+        boolean[] covered = new boolean[totalNodes];
+        int missing = totalNodes - 1;
+
+        elements.add(0);
+        covered[0] = true;
+
+        // 2. Add the element producing the most missing differences with the ones we have, until none is missing.
+        while( missing > 0 ) {
+
+            int best = -1, bestGain = -1;
+
+            for( int candidate = 1; candidate < totalNodes; candidate++ ) {
+
+                int gain = newDifferences(candidate, elements, covered, totalNodes, false);
+
+                if( gain > bestGain ) {
+                    best = candidate;
+                    bestGain = gain;
+                }
+
+            }
+
+            missing -= newDifferences(best, elements, covered, totalNodes, true);
+            elements.add(best);
+
+        }
+
+        int[] differenceSet = new int[elements.size()];
+
+        for( int i = 0; i < differenceSet.length; i++ ) {
+            differenceSet[i] = elements.get(i);
+        }
+
+        return differenceSet;
+
+    }
+
+    // Counts the differences between the candidate and the elements that are not covered yet, marking them if
+    // asked to. Without marking a difference produced twice by the candidate is counted twice, which is close
+    // enough to rank the candidates and saves copying the covered array for each of them.
+    private static int newDifferences(int candidate, ArrayList<Integer> elements, boolean[] covered, int totalNodes, boolean mark) {
+
+        int gain = 0;
+
+        for( int element : elements ) {
+
+            int forward = (candidate - element + totalNodes) % totalNodes;
+            int backward = (element - candidate + totalNodes) % totalNodes;
+
+            if( ! covered[forward] ) {
+                covered[forward] = mark;
+                gain++;
+            }
+
+            if( backward != forward && ! covered[backward] ) {
+                covered[backward] = mark;
+                gain++;
+            }
+
+        }
+
+        return gain;
+
+    }
+
+}
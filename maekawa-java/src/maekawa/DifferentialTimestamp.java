@@ -0,0 +1,81 @@
+package maekawa;
+
+/**
+ * A Singhal-Kshemkalyani differential vector timestamp: only the entries of the sender's vector clock
+ * that changed since its last message to the destination, plus the sum of the whole vector so the
+ * receiver can still prioritize requests by it. Relies on messages to a peer arriving in the order
+ * they were sent, which the persistent per-peer connections give us.
+ */
+public class DifferentialTimestamp implements Timestamp {
+
+    private int ownerProcessId;
+    private int logicalClockValue;
+    private int[] processIds;
+    private int[] values;
+
+    public DifferentialTimestamp(int ownerProcessId, int logicalClockValue, int[] processIds, int[] values) {
+        this.ownerProcessId = ownerProcessId;
+        this.logicalClockValue = logicalClockValue;
+        this.processIds = processIds;
+        this.values = values;
+    }
+
+    // Parses owner{sum|id=value:id=value...} as written by toString().
+    public DifferentialTimestamp(String timestampData) {
+
+        String[] split = timestampData.substring(0, timestampData.length() - 1).split("[{|]", -1);
+        String[] entries = ( split[2].length() == 0 ) ? new String[0] : split[2].split(":");
+
+        this.ownerProcessId = Integer.parseInt(split[0]);
+        this.logicalClockValue = Integer.parseInt(split[1]);
+        this.processIds = new int[entries.length];
+        this.values = new int[entries.length];
+
+        for( int i = 0; i < entries.length; i++ ) {
+            String[] entry = entries[i].split("=");
+            this.processIds[i] = Integer.parseInt(entry[0]);
+            this.values[i] = Integer.parseInt(entry[1]);
+        }
+
+    }
+
+    @Override
+    public int getOwnerProcessId() {
+        return this.ownerProcessId;
+    }
+
+    public int size() {
+        return this.processIds.length;
+    }
+
+    public int getProcessId(int entry) {
+        return this.processIds[entry];
+    }
+
+    public int getValue(int entry) {
+        return this.values[entry];
+    }
+
+    @Override
+    public int getLogicalClockValue() {
+        return this.logicalClockValue;
+    }
+
+    @Override
+    public String toString() {
+
+        StringBuilder out = new StringBuilder();
+        out.append(this.ownerProcessId).append('{').append(this.logicalClockValue).append('|');
+
+        for( int i = 0; i < this.processIds.length; i++ ) {
+            if( i > 0 ) {
+                out.append(':');
+            }
+            out.append(this.processIds[i]).append('=').append(this.values[i]);
+        }
+
+        return out.append('}').toString();
+
+    }
+
+}
@@ -1,3 +1,5 @@
+package maekawa;
+
 import java.util.Random;
 
 /**
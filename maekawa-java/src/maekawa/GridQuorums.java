@@ -0,0 +1,40 @@
+package maekawa;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+
+/**
+ * Nodes fill a square grid row by row, the quorum of a node is its row plus its column: about 2 sqrt(N)
+ * members. Two quorums always meet where the row of one crosses the column of the other, when the
+ * last row is short the other pair of row and column does.
+ */
+public class GridQuorums implements QuorumGenerator {
+
+    @Override
+    public ArrayList<HashSet<Integer>> generate(int totalNodes) {
+
+        int columns = (int) Math.ceil(Math.sqrt(totalNodes));
+        ArrayList<HashSet<Integer>> quorums = new ArrayList<HashSet<Integer>>(totalNodes);
+
+        for( int nodeId = 0; nodeId < totalNodes; nodeId++ ) {
+
+            HashSet<Integer> quorum = new HashSet<Integer>();
+            int row = nodeId / columns, column = nodeId % columns;
+
+            for( int i = row * columns; i < Math.min(totalNodes, (row + 1) * columns); i++ ) {
+                quorum.add(i);
+            }
+
+            for( int i = column; i < totalNodes; i += columns ) {
+                quorum.add(i);
+            }
+
+            quorums.add(quorum);
+
+        }
+
+        return quorums;
+
+    }
+
+}
@@ -0,0 +1,111 @@
+package maekawa;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.Set;
+
+/**
+ * Kumar's hierarchical quorum consensus. Nodes are the leaves of a tree in which every vertex splits
+ * its nodes into three groups, and a quorum takes a majority of the children at every level: 2 of 3,
+ * so N^0.63 members for N = 3^k. Two majorities of the same group always share a child, which carries
+ * down to a shared node. Any majority will do, so a quorum can leave out a minority of every group.
+ */
+public class HierarchicalQuorumSystem implements QuorumSystem {
+
+    private static final int GROUP_SIZE = 3;
+
+    // A vertex of the tree covering the nodes firstNode to lastNode, a leaf when both are the same.
+    private static class Group {
+
+        int firstNode, lastNode;
+        ArrayList<Group> children = new ArrayList<Group>();
+
+        Group(int firstNode, int lastNode) {
+            this.firstNode = firstNode;
+            this.lastNode = lastNode;
+        }
+
+    }
+
+    private Group root;
+
+    public HierarchicalQuorumSystem(int totalNodes) {
+        this.root = this.build(0, totalNodes - 1);
+    }
+
+    // Splits the nodes into three groups of nearly the same size, so N that is no power of 3 still gets a
+    // balanced tree instead of a last group holding a single node.
+    private Group build(int firstNode, int lastNode) {
+
+        Group group = new Group(firstNode, lastNode);
+
+        if( firstNode == lastNode ) {
+            return group;
+        }
+
+        int nodes = lastNode - firstNode + 1;
+        int groups = Math.min(GROUP_SIZE, nodes);
+
+        for( int i = 0; i < groups; i++ ) {
+            group.children.add(this.build(firstNode + i * nodes / groups, firstNode + (i + 1) * nodes / groups - 1));
+        }
+
+        return group;
+
+    }
+
+    @Override
+    public Set<Integer> selectQuorum(int nodeId, Set<Integer> avoid) {
+
+        ArrayList<Integer> members = new ArrayList<Integer>();
+
+        return this.addMajority(this.root, nodeId, avoid, members) ? new HashSet<Integer>(members) : null;
+
+    }
+
+    // Appends a quorum of the group to members, on failure members is left as it was.
+    private boolean addMajority(Group group, int nodeId, Set<Integer> avoid, ArrayList<Integer> members) {
+
+        // 1. A leaf is its own quorum, unless it must be avoided.
+        if( group.children.isEmpty() ) {
+
+            if( avoid.contains(group.firstNode) ) {
+                return false;
+            }
+
+            members.add(group.firstNode);
+
+            return true;
+
+        }
+
+        // 2. Start with the child holding the requesting node, then rotate by node id to spread the load.
+        int childCount = group.children.size();
+        int majority = childCount / 2 + 1;
+        int first = nodeId % childCount;
+
+        for( int i = 0; i < childCount; i++ ) {
+            Group child = group.children.get(i);
+            if( nodeId >= child.firstNode && nodeId <= child.lastNode ) {
+                first = i;
+            }
+        }
+
+        int found = 0, added = members.size();
+
+        for( int i = 0; i < childCount && found < majority; i++ ) {
+            if( this.addMajority(group.children.get((first + i) % childCount), nodeId, avoid, members) ) {
+                found++;
+            }
+        }
+
+        if( found < majority ) {
+            members.subList(added, members.size()).clear();
+            return false;
+        }
+
+        return true;
+
+    }
+
+}
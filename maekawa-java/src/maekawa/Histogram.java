@@ -0,0 +1,126 @@
+package maekawa;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * A lock-free histogram of non-negative longs, nanoseconds or queue depths. Buckets are log-linear:
+ * each power of two is split into SUB_BUCKETS, so a percentile is off by at most 1 / SUB_BUCKETS
+ * of its value. Recording is a handful of atomic adds, cheap enough for every message.
+ */
+public class Histogram {
+
+    private static final int SUB_BUCKET_BITS = 3;
+    private static final int SUB_BUCKETS = 1 << SUB_BUCKET_BITS;
+
+    // Values below SUB_BUCKETS get a bucket each, every power of two above that SUB_BUCKETS of them.
+    private static final int BUCKETS = (64 - SUB_BUCKET_BITS + 1) * SUB_BUCKETS;
+
+    private AtomicLongArray counts = new AtomicLongArray(BUCKETS);
+    private AtomicLong count = new AtomicLong();
+    private AtomicLong sum = new AtomicLong();
+    private AtomicLong max = new AtomicLong();
+
+    public void record(long value) {
+
+        value = Math.max(0, value);
+
+        this.counts.incrementAndGet(bucketOf(value));
+        this.count.incrementAndGet();
+        this.sum.addAndGet(value);
+
+        long currentMax = this.max.get();
+
+        while( value > currentMax && ! this.max.compareAndSet(currentMax, value) ) {
+            currentMax = this.max.get();
+        }
+
+    }
+
+    private static int bucketOf(long value) {
+
+        if( value < SUB_BUCKETS ) {
+            return (int) value;
+        }
+
+        // The highest bit picks the power of two, the SUB_BUCKET_BITS below it the sub-bucket.
+        int exponent = 63 - Long.numberOfLeadingZeros(value);
+        int subBucket = (int) (value >>> (exponent - SUB_BUCKET_BITS)) & (SUB_BUCKETS - 1);
+
+        return (exponent - SUB_BUCKET_BITS + 1) * SUB_BUCKETS + subBucket;
+
+    }
+
+    // The largest value that falls into the bucket.
+    private static long highestValueOf(int bucket) {
+
+        if( bucket < SUB_BUCKETS ) {
+            return bucket;
+        }
+
+        int exponent = bucket / SUB_BUCKETS + SUB_BUCKET_BITS - 1;
+        long subBucket = bucket % SUB_BUCKETS;
+        long lowest = (1L << exponent) | (subBucket << (exponent - SUB_BUCKET_BITS));
+
+        return lowest + (1L << (exponent - SUB_BUCKET_BITS)) - 1;
+
+    }
+
+    public void add(Histogram that) {
+
+        for( int bucket = 0; bucket < BUCKETS; bucket++ ) {
+            this.counts.addAndGet(bucket, that.counts.get(bucket));
+        }
+
+        this.count.addAndGet(that.count.get());
+        this.sum.addAndGet(that.sum.get());
+
+        long thatMax = that.max.get();
+        long currentMax = this.max.get();
+
+        while( thatMax > currentMax && ! this.max.compareAndSet(currentMax, thatMax) ) {
+            currentMax = this.max.get();
+        }
+
+    }
+
+    public long getCount() {
+        return this.count.get();
+    }
+
+    public long getMax() {
+        return this.max.get();
+    }
+
+    public double getMean() {
+        long count = this.count.get();
+        return ( count == 0 ) ? 0 : (double) this.sum.get() / count;
+    }
+
+    // The value that percentile percent of the recorded ones are at or below, 0 if there are none.
+    public long getPercentile(double percentile) {
+
+        long count = this.count.get();
+
+        if( count == 0 ) {
+            return 0;
+        }
+
+        long rank = Math.max(1, (long) Math.ceil(percentile / 100 * count));
+        long seen = 0;
+
+        for( int bucket = 0; bucket < BUCKETS; bucket++ ) {
+
+            seen += this.counts.get(bucket);
+
+            if( seen >= rank ) {
+                return Math.min(highestValueOf(bucket), this.max.get());
+            }
+
+        }
+
+        return this.max.get();
+
+    }
+
+}
@@ -0,0 +1,33 @@
+package maekawa;
+
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Connects the InMemoryTransports of nodes running in the same JVM, a message is delivered by
+ * putting it straight into the destination's incoming queue.
+ */
+public class InMemoryNetwork {
+
+    private ConcurrentHashMap<Integer, BlockingQueue<Message>> mailboxes = new ConcurrentHashMap<Integer, BlockingQueue<Message>>();
+
+    public void register(int nodeId, BlockingQueue<Message> incomingMessages) {
+        this.mailboxes.put(nodeId, incomingMessages);
+    }
+
+    public void unregister(int nodeId) {
+        this.mailboxes.remove(nodeId);
+    }
+
+    public void deliver(int nodeId, Message message) {
+
+        BlockingQueue<Message> mailbox = this.mailboxes.get(nodeId);
+
+        // Like a peer that has already shut down, a message to an unknown node is dropped.
+        if( mailbox != null ) {
+            mailbox.offer(message);
+        }
+
+    }
+
+}
@@ -0,0 +1,46 @@
+package maekawa;
+
+import java.util.Collection;
+import java.util.concurrent.BlockingQueue;
+
+public class InMemoryTransport implements Transport {
+
+    private InMemoryNetwork network;
+    private int nodeId;
+
+    public InMemoryTransport(InMemoryNetwork network) {
+        this.network = network;
+    }
+
+    @Override
+    public void open(NodeContext context, BlockingQueue<Message> incomingMessages) {
+        this.nodeId = context.nodeId;
+        this.network.register(this.nodeId, incomingMessages);
+    }
+
+    @Override
+    public void start() { }
+
+    // Messages are never modified once sent, so the same object can be handed to every receiver.
+    @Override
+    public void send(int processId, Message message) {
+        this.network.deliver(processId, message);
+    }
+
+    @Override
+    public void send(Collection<Integer> processIds, Message message) {
+        for( Integer processId : processIds ) {
+            this.network.deliver(processId, message);
+        }
+    }
+
+    // Nothing is held back, messages are delivered as soon as they are sent.
+    @Override
+    public void flush() { }
+
+    @Override
+    public void close() {
+        this.network.unregister(this.nodeId);
+    }
+
+}
@@ -0,0 +1,71 @@
+package maekawa;
+
+public class LamportClock implements LogicalClock {
+
+    private int value;
+    private int ownerProcessId;
+
+    public LamportClock(int ownerProcessId) {
+        this(1, ownerProcessId);
+    }
+
+    public LamportClock(int value, int ownerProcessId) {
+        this.value = value;
+        this.ownerProcessId = ownerProcessId;
+    }
+
+    public LamportClock(String lamportClockData) {
+        String[] split = lamportClockData.split("@");
+        this.ownerProcessId = Integer.parseInt(split[0]);
+        this.value = Integer.parseInt(split[1]);
+    }
+
+    @Override
+    public int getOwnerProcessId() {
+        return this.ownerProcessId;
+    }
+
+    @Override
+    public LamportClock tickForMessage() {
+        this.value++;
+        return new LamportClock(this.value, this.ownerProcessId);
+    }
+
+    @Override
+    public void receivedTimestamp(Timestamp otherClock) {
+        this.value = Math.max(this.value, otherClock.getLogicalClockValue()) + 1;
+    }
+
+    @Override
+    public int getLogicalClockValue() {
+        return this.value;
+    }
+
+    @Override
+    public String toString() {
+        return String.format("%d@%d", this.ownerProcessId, this.value);
+    }
+
+    @Override
+    public boolean equals(Object o) {
+
+        if (this == o) {
+            return true;
+        }
+
+        if (o == null || getClass() != o.getClass()) {
+            return false;
+        }
+
+        LamportClock that = (LamportClock) o;
+
+        return ( this.ownerProcessId == that.ownerProcessId && this.value == that.value );
+
+    }
+
+    @Override
+    public int hashCode() {
+        return 31 * this.ownerProcessId + this.value;
+    }
+
+}
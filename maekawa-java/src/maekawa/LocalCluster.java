@@ -0,0 +1,233 @@
+package maekawa;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Runs every node of a config file inside this JVM, connected through an InMemoryNetwork instead of
+ * sockets. Useful to measure what the algorithm itself can do without kernel networking in the way.
+ */
+public class LocalCluster {
+
+    public static void main(String[] args) {
+
+        if( args.length < 1 ) {
+            System.out.println("Usage: LocalCluster <config file path> (--verbose) (--lamport-clock) (--differential-clock) (--sticky-grants) (--cohort-bound <n>) (--load-aware-quorums) (--cs-log <directory>) (--threads <n>)");
+            System.exit(1);
+        }
+
+        Node.parseOptions(args, 1);
+
+        // Several application threads per node share its locks, see runThreads().
+        int threadsPerNode = 1;
+
+        for( int i = 1; i < args.length - 1; i++ ) {
+            if( args[i].equals("--threads") ) {
+                threadsPerNode = Math.max(1, Integer.parseInt(args[i + 1]));
+            }
+        }
+
+        ArrayList<String[]> tokenizedLines = null;
+        QuorumSystem quorumSystem = null;
+
+        try {
+            tokenizedLines = ConfigFile.tokenize(args[0]);
+            quorumSystem = ConfigFile.quorumSystem(tokenizedLines);
+        } catch (IOException e) {
+            System.err.printf("Failed to parse config file: %s\nWill now exit!\n", e);
+            System.exit(1);
+        } catch (IllegalArgumentException e) {
+            System.err.printf("Invalid config file: %s\nWill now exit!\n", e.getMessage());
+            System.exit(1);
+        }
+
+        // 1. Create every node first, so all of them are reachable before the first one sends a REQUEST.
+        int totalNodes = Integer.parseInt(tokenizedLines.get(0)[0]);
+        InMemoryNetwork network = new InMemoryNetwork();
+        Node[] nodes = new Node[totalNodes];
+
+        for( int nodeId = 0; nodeId < totalNodes; nodeId++ ) {
+            nodes[nodeId] = ConfigFile.process(nodeId, tokenizedLines, new InMemoryTransport(network), quorumSystem);
+        }
+
+        // 2. Run all of them to completion.
+        long startTime = System.nanoTime();
+        int totalRequests = 0;
+        int problems = 0;
+
+        for( Node node : nodes ) {
+            totalRequests += node.getNumReqs() * threadsPerNode;
+        }
+
+        if( threadsPerNode > 1 ) {
+            problems = LocalCluster.runThreads(nodes, threadsPerNode, totalRequests);
+        } else {
+            problems = LocalCluster.runNodes(nodes);
+        }
+
+        double elapsedSeconds = (System.nanoTime() - startTime) / 1e9;
+        System.out.printf("%d nodes completed %d critical sections in %.3f s (%.1f CS/s)\n", totalNodes, totalRequests, elapsedSeconds, totalRequests / elapsedSeconds);
+
+        // 3. Compare the message complexity with Maekawa's 3K to 5K range, K being the average quorum size.
+        MessageCounters messagesSent = new MessageCounters();
+        Histogram acquisitionLatency = new Histogram();
+        double quorumSize = 0;
+
+        for( Node node : nodes ) {
+            messagesSent.add(node.getContext().messagesSent);
+            acquisitionLatency.add(node.getContext().metrics.acquisitionLatency);
+            quorumSize += node.getContext().quorumMembers.size();
+        }
+
+        quorumSize /= totalNodes;
+        double messagesPerCS = (double) messagesSent.getProtocolTotal() / Math.max(1, totalRequests);
+
+        System.out.printf("Messages sent: %s\n", messagesSent);
+        System.out.printf("%.2f messages per CS, %s Maekawa's range of %.1f to %.1f for quorums of %.1f nodes\n", messagesPerCS, MessageCounters.compareToMaekawaRange(messagesPerCS, quorumSize), 3 * quorumSize, 5 * quorumSize, quorumSize);
+        System.out.printf("Acquisition latency p50 %.0f us, p99 %.0f us, max %.0f us\n", acquisitionLatency.getPercentile(50) / 1e3, acquisitionLatency.getPercentile(99) / 1e3, acquisitionLatency.getMax() / 1e3);
+
+        System.exit(( problems == 0 ) ? 0 : 1);
+
+    }
+
+    // Every node runs its benchmark loop, Node(0) verifies the critical sections from their records.
+    // Returns how many critical sections Node(0) found overlapping another one.
+    private static int runNodes(Node[] nodes) {
+
+        Thread[] nodeThreads = new Thread[nodes.length];
+
+        for( int nodeId = 0; nodeId < nodes.length; nodeId++ ) {
+            nodeThreads[nodeId] = new Thread(nodes[nodeId], String.format("Node(%d)", nodeId));
+            nodeThreads[nodeId].start();
+        }
+
+        for( Thread nodeThread : nodeThreads ) {
+            try {
+                nodeThread.join();
+            } catch (InterruptedException e) {}
+        }
+
+        int conflicts = 0;
+
+        for( Node node : nodes ) {
+            if( node.getContext().verificationHandler != null ) {
+                conflicts += node.getContext().verificationHandler.getConflicts();
+            }
+        }
+
+        return conflicts;
+
+    }
+
+    // Several application threads per node take turns on the default lock through enterCS()/leaveCS(), so
+    // the lock is passed on between threads of a node and, with sticky grants, entered again on the grants
+    // kept. All nodes share this JVM, so the threads check mutual exclusion against each other directly.
+    // Returns how many critical sections overlapped, failed or never completed.
+    private static int runThreads(final Node[] nodes, int threadsPerNode, int totalRequests) {
+
+        final AtomicInteger holders = new AtomicInteger(0);
+        final AtomicInteger completed = new AtomicInteger(0);
+        final AtomicInteger overlapping = new AtomicInteger(0);
+        final AtomicInteger failed = new AtomicInteger(0);
+        ArrayList<Thread> threads = new ArrayList<Thread>();
+
+        for( Node node : nodes ) {
+            node.start();
+        }
+
+        // 1. Start every application thread at once so they contend for the lock.
+        for( final Node node : nodes ) {
+
+            for( int i = 0; i < threadsPerNode; i++ ) {
+
+                Thread thread = new Thread(String.format("Node(%d)-%d", node.getContext().nodeId, i)) {
+                    @Override
+                    public void run() {
+
+                        for( int requestId = 1; requestId <= node.getNumReqs(); requestId++ ) {
+
+                            try {
+                                node.enterCS(Message.DEFAULT_LOCK);
+                            } catch (RuntimeException e) {
+                                System.err.printf("%s failed to acquire the lock: %s\n", this.getName(), e);
+                                failed.incrementAndGet();
+                                continue;
+                            }
+
+                            if( holders.incrementAndGet() != 1 ) {
+                                overlapping.incrementAndGet();
+                            }
+
+                            Thread.yield();
+
+                            holders.decrementAndGet();
+                            node.leaveCS(Message.DEFAULT_LOCK);
+                            completed.incrementAndGet();
+
+                        }
+
+                    }
+                };
+
+                thread.setDaemon(true);
+                thread.start();
+                threads.add(thread);
+
+            }
+
+        }
+
+        // 2. Wait for them, giving up once no critical section completed for a while.
+        boolean progressing = true;
+
+        for( Thread thread : threads ) {
+            while( progressing && thread.isAlive() ) {
+
+                int before = completed.get() + failed.get();
+
+                try {
+                    thread.join(10000);
+                } catch (InterruptedException e) {}
+
+                progressing = ( ! thread.isAlive() || completed.get() + failed.get() != before );
+
+            }
+        }
+
+        int stuck = totalRequests - completed.get() - failed.get();
+
+        System.out.printf("%d threads per node: %d critical sections, %d overlapping, %d failed, %d stuck\n", threadsPerNode, completed.get(), overlapping.get(), failed.get(), stuck);
+
+        // 3. Stuck threads may still hold the lock, nodes could not shut down.
+        if( stuck > 0 ) {
+            return overlapping.get() + failed.get() + stuck;
+        }
+
+        ArrayList<Thread> shutdowns = new ArrayList<Thread>();
+
+        for( final Node node : nodes ) {
+
+            Thread shutdown = new Thread() {
+                @Override
+                public void run() {
+                    node.shutdown();
+                }
+            };
+
+            shutdown.start();
+            shutdowns.add(shutdown);
+
+        }
+
+        for( Thread shutdown : shutdowns ) {
+            try {
+                shutdown.join();
+            } catch (InterruptedException e) {}
+        }
+
+        return overlapping.get() + failed.get();
+
+    }
+
+}
@@ -0,0 +1,191 @@
+package maekawa;
+
+import java.util.HashSet;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * The requesting side of Maekawa's algorithm for one lock: the GRANTs collected from our quorum so
+ * far. Created by the application thread, afterwards only touched from the coordinator thread. With
+ * sticky grants it outlives the critical section and the application thread comes back to it, which
+ * is why its methods are synchronized.
+ */
+public class LockAcquisition {
+
+    private NodeContext context;
+    private String lockKey;
+    private Set<Integer> quorum;
+
+    private HashSet<Integer> quorumReplies = new HashSet<Integer>();
+    private boolean hasEnteredCriticalSection = false;
+
+    // Sticky grants: after the CS we keep the GRANTs until their arbiter asks for them back with an
+    // INQUIRE or a REVOKE, until then the lock can be entered again without sending anything.
+    private boolean retained = false;
+    private HashSet<Integer> revokedGrants = new HashSet<Integer>();
+
+    // Completed with the logical clock value at which we entered the critical section.
+    private CompletableFuture<Integer> future;
+
+    // The REQUEST goes out right after the acquisition is created, GRANT latencies count from here.
+    private long requestedAt = System.nanoTime();
+
+    public LockAcquisition(NodeContext context, String lockKey, Set<Integer> quorum) {
+        this(context, lockKey, quorum, new CompletableFuture<Integer>());
+    }
+
+    public LockAcquisition(NodeContext context, String lockKey, Set<Integer> quorum, CompletableFuture<Integer> future) {
+        this.context = context;
+        this.lockKey = lockKey;
+        this.quorum = quorum;
+        this.future = future;
+    }
+
+    public String getLockKey() {
+        return this.lockKey;
+    }
+
+    // The members this acquisition asked, its RELEASE goes to the same ones.
+    public Set<Integer> getQuorum() {
+        return this.quorum;
+    }
+
+    public CompletableFuture<Integer> getFuture() {
+        return this.future;
+    }
+
+    public synchronized boolean hasEnteredCriticalSection() {
+        return this.hasEnteredCriticalSection;
+    }
+
+    public synchronized boolean isRetained() {
+        return this.retained;
+    }
+
+    public synchronized void handleGrant(Message incomingMessage) {
+
+        // 1. If we received a GRANT from one of our quorum members then note it.
+        if( this.hasEnteredCriticalSection || ! this.quorum.contains(incomingMessage.getSourceProcessId()) ) {
+            return;
+        }
+
+        this.quorumReplies.add(incomingMessage.getSourceProcessId());
+
+        if( this.context.arbiterLatencies != null ) {
+            this.context.arbiterLatencies.record(incomingMessage.getSourceProcessId(), System.nanoTime() - this.requestedAt);
+        }
+
+        // 2. Can only enter CS once a reply has been received from all quorum members.
+        if( this.quorumReplies.size() == this.quorum.size() ) {
+
+            int enterCSTime = 0;
+
+            synchronized (this.context.lock) {
+                enterCSTime = this.context.clock.getLogicalClockValue();
+            }
+
+            this.hasEnteredCriticalSection = true;
+            this.context.metrics.acquisitionLatency.record(System.nanoTime() - this.requestedAt);
+            this.context.metrics.entered(this.lockKey);
+            this.future.complete(enterCSTime);
+
+        }
+
+    }
+
+    public synchronized void handleFailed(Message incomingMessage) {
+
+        // If we received a FAILED from one of our quorum members then remove the GRANT message they gave us.
+        if( ! this.hasEnteredCriticalSection ) {
+            this.quorumReplies.remove(incomingMessage.getSourceProcessId());
+        }
+
+    }
+
+    public synchronized void handleInquire(Message incomingMessage) {
+
+        // 1. Ignore the inquire if we do not hold that member's GRANT: channels are FIFO, so it was about a
+        // grant we already released.
+        if( ! this.quorumReplies.contains(incomingMessage.getSourceProcessId()) ) {
+            return;
+        }
+
+        // 2. If we have already entered the critical section then the grant goes back once we leave it,
+        // that only matters to sticky grants as otherwise all of them go back.
+        if( this.hasEnteredCriticalSection || this.retained ) {
+            this.revoke(incomingMessage.getSourceProcessId());
+            return;
+        }
+
+        // 3. YIELD to that quorum member because we haven't received all of the required GRANT's
+        Message.send(this.context, Message.Type.YIELD, this.lockKey, incomingMessage.getSourceProcessId());
+
+        // 4. Remove the GRANT (if any) from the node that sent us the INQUIRE.
+        this.quorumReplies.remove(incomingMessage.getSourceProcessId());
+        this.revokedGrants.remove(incomingMessage.getSourceProcessId());
+
+    }
+
+    public synchronized void handleRevoke(Message incomingMessage) {
+
+        // Like an INQUIRE, a REVOKE about a grant we already released is ignored.
+        if( this.quorumReplies.contains(incomingMessage.getSourceProcessId()) ) {
+            this.revoke(incomingMessage.getSourceProcessId());
+        }
+
+    }
+
+    private void revoke(int processId) {
+
+        // While we keep grants after the CS they go back right away, otherwise once we leave it.
+        if( this.retained ) {
+            this.quorumReplies.remove(processId);
+            Message.send(this.context, Message.Type.RELEASE, this.lockKey, processId);
+        } else {
+            this.revokedGrants.add(processId);
+        }
+
+    }
+
+    // Leaves the critical section but keeps the GRANTs, except those that were asked for meanwhile.
+    public synchronized void retain() {
+
+        this.hasEnteredCriticalSection = false;
+        this.retained = true;
+
+        for( Integer processId : this.revokedGrants ) {
+            this.quorumReplies.remove(processId);
+            Message.send(this.context, Message.Type.RELEASE, this.lockKey, processId);
+        }
+
+        this.revokedGrants.clear();
+
+    }
+
+    // Enters the critical section again if we still hold every GRANT, without sending anything.
+    public synchronized boolean reenter() {
+
+        if( ! this.retained || this.quorumReplies.size() != this.quorum.size() ) {
+            return false;
+        }
+
+        this.retained = false;
+        this.hasEnteredCriticalSection = true;
+
+        return true;
+
+    }
+
+    // Gives back the GRANTs we still hold, the next request starts from scratch.
+    public synchronized void relinquish() {
+
+        for( Integer processId : this.quorumReplies ) {
+            Message.send(this.context, Message.Type.RELEASE, this.lockKey, processId);
+        }
+
+        this.quorumReplies.clear();
+        this.retained = false;
+
+    }
+
+}
@@ -0,0 +1,10 @@
+package maekawa;
+
+public interface LogicalClock extends Timestamp {
+
+    // Advances the clock for a send event and returns a copy of it to travel with the message.
+    LogicalClock tickForMessage();
+
+    void receivedTimestamp(Timestamp otherClock);
+
+}
@@ -0,0 +1,257 @@
+package maekawa;
+
+import java.util.Collection;
+
+public class Message {
+
+    // RELEASE_REQUEST releases the lock and requests it again in one message, REVOKE asks for a sticky grant
+    // back. New types go last to keep the ordinals.
+    public static enum Type { REQUEST, YIELD, INQUIRE, RELEASE, FAILED, GRANT, DEBUG, FINISHED, RELEASE_REQUEST, REVOKE }
+
+    // The lock protocol messages are about when the application did not name one.
+    public static final String DEFAULT_LOCK = "";
+
+    private Type type;
+    private int sourceProcessId;
+    private Timestamp sourceClock;
+    private String lockKey = DEFAULT_LOCK;
+
+    public Object data = null;
+
+    public static void send(NodeContext context, Type messageType, int processId) {
+        send(context, messageType, DEFAULT_LOCK, processId);
+    }
+
+    public static void send(NodeContext context, Type messageType, String lockKey, int processId) {
+
+        context.messagesSent.count(messageType, 1);
+
+        // Queued under the same lock it was stamped under, differential timestamps to a peer must go out in
+        // the order VectorClock.timestampFor() made them.
+        synchronized (context.lock) {
+            Message message = new Message(messageType, context.nodeId, context.clock.tickForMessage(), lockKey);
+            message.sourceClock = timestampFor(context, message.sourceClock, processId);
+            context.transport.send(processId, message);
+        }
+
+    }
+
+    public static void broadcast(NodeContext context, Type messageType, Collection<Integer> processIds) {
+        broadcast(context, messageType, DEFAULT_LOCK, processIds);
+    }
+
+    public static void broadcast(NodeContext context, Type messageType, String lockKey, Collection<Integer> processIds) {
+
+        context.messagesSent.count(messageType, processIds.size());
+
+        // Like send(), stamped and queued under one lock.
+        synchronized (context.lock) {
+
+            Message message = new Message(messageType, context.nodeId, context.clock.tickForMessage(), lockKey);
+
+            if( ! isDifferential(context) ) {
+                context.transport.send(processIds, message);
+                return;
+            }
+
+            // With differential timestamps every member gets its own delta, all sharing the one send event.
+            for( Integer processId : processIds ) {
+                context.transport.send(processId, new Message(messageType, context.nodeId, timestampFor(context, message.sourceClock, processId), lockKey));
+            }
+
+        }
+
+    }
+
+    private static boolean isDifferential(NodeContext context) {
+        return ( context.clock instanceof VectorClock && ((VectorClock) context.clock).isDifferential() );
+    }
+
+    // Must be called while holding the context lock, right after the clock was ticked for this send event.
+    private static Timestamp timestampFor(NodeContext context, Timestamp sourceClock, int processId) {
+
+        if( ! isDifferential(context) ) {
+            return sourceClock;
+        }
+
+        return ((VectorClock) context.clock).timestampFor(processId);
+
+    }
+
+    public static Message parse(String messageData) {
+
+        if( messageData == null || messageData.length() == 0 ) {
+            return null;
+        }
+
+        // Incoming message format is NAME(Args, ...) we will split "NAME" and "Args, ..."
+        String[] messageComponents = messageData.substring(0, messageData.length() - 1).split("\\(");
+
+        String messageType = messageComponents[0];
+        String[] messageArguments = messageComponents[1].split(",");
+
+        Message message = null;
+
+        // REQUEST(ts,i) or REQUEST(ts,i,lock)
+        if( messageType.equals("REQUEST") ) {
+            message = new Message(Integer.parseInt(messageArguments[1]), parseClock(messageArguments[0]));
+            message.type = Type.REQUEST;
+        }
+
+        // YIELD(ts,i) or YIELD(ts,i,lock)
+        else if( messageType.equals("YIELD") ) {
+            message = new Message(Integer.parseInt(messageArguments[1]), parseClock(messageArguments[0]));
+            message.type = Type.YIELD;
+        }
+
+        // INQUIRE(ts,i) or INQUIRE(ts,i,lock)
+        else if( messageType.equals("INQUIRE") ) {
+            message = new Message(Integer.parseInt(messageArguments[1]), parseClock(messageArguments[0]));
+            message.type = Type.INQUIRE;
+        }
+
+        // RELEASE(ts,i) or RELEASE(ts,i,lock)
+        else if( messageType.equals("RELEASE") ) {
+            message = new Message(Integer.parseInt(messageArguments[1]), parseClock(messageArguments[0]));
+            message.type = Type.RELEASE;
+        }
+
+        // RELEASE_REQUEST(ts,i) or RELEASE_REQUEST(ts,i,lock)
+        else if( messageType.equals("RELEASE_REQUEST") ) {
+            message = new Message(Integer.parseInt(messageArguments[1]), parseClock(messageArguments[0]));
+            message.type = Type.RELEASE_REQUEST;
+        }
+
+        // REVOKE(ts,i) or REVOKE(ts,i,lock)
+        else if( messageType.equals("REVOKE") ) {
+            message = new Message(Integer.parseInt(messageArguments[1]), parseClock(messageArguments[0]));
+            message.type = Type.REVOKE;
+        }
+
+        // FAILED(ts,i) or FAILED(ts,i,lock)
+        else if( messageType.equals("FAILED") ) {
+            message = new Message(Integer.parseInt(messageArguments[1]), parseClock(messageArguments[0]));
+            message.type = Type.FAILED;
+        }
+
+        // GRANT(ts,i) or GRANT(ts,i,lock)
+        else if( messageType.equals("GRANT") ) {
+            message = new Message(Integer.parseInt(messageArguments[1]), parseClock(messageArguments[0]));
+            message.type = Type.GRANT;
+        }
+
+        // DEBUG(nodeId, requestId, startTime, endTime)
+        else if( messageType.equals("DEBUG") ) {
+            message = new Message(-1, null);
+            message.type = Type.DEBUG;
+            message.data = new int[] { Integer.parseInt(messageArguments[0]), Integer.parseInt(messageArguments[1]), Integer.parseInt(messageArguments[2]), Integer.parseInt(messageArguments[3]) };
+        }
+
+        // FINISHED(i), i being -1 when it comes from the verification
+        else if( messageType.equals("FINISHED")  ) {
+            message = new Message(( messageArguments[0].length() > 0 ) ? Integer.parseInt(messageArguments[0]) : -1, null);
+            message.type = Type.FINISHED;
+        }
+
+        if( message != null && message.sourceClock != null && messageArguments.length > 2 ) {
+            message.lockKey = messageArguments[2];
+        }
+
+        return message;
+
+    }
+
+    // Vector clocks look like owner[v0:v1:...], Lamport clocks like owner@value and
+    // differential timestamps like owner{sum|id=value:...}.
+    private static Timestamp parseClock(String clockData) {
+
+        if( clockData.indexOf('@') != -1 ) {
+            return new LamportClock(clockData);
+        }
+
+        if( clockData.indexOf('{') != -1 ) {
+            return new DifferentialTimestamp(clockData);
+        }
+
+        return new VectorClock(clockData);
+
+    }
+
+    public static Message debug(int nodeId, int requestId, int startTime, int endTime) {
+
+        Message message = new Message(Type.DEBUG, -1, null);
+        message.data = new int[] { nodeId, requestId, startTime, endTime };
+
+        return message;
+
+    }
+
+    public Message(int sourceProcessId, Timestamp sourceClock) {
+        this.sourceProcessId = sourceProcessId;
+        this.sourceClock = sourceClock;
+    }
+
+    public Message(Type type, int sourceProcessId, Timestamp sourceClock) {
+        this.type = type;
+        this.sourceProcessId = sourceProcessId;
+        this.sourceClock = sourceClock;
+    }
+
+    public Message(Type type, int sourceProcessId, Timestamp sourceClock, String lockKey) {
+        this(type, sourceProcessId, sourceClock);
+        this.lockKey = lockKey;
+    }
+
+    public Type getType() {
+        return this.type;
+    }
+
+    public boolean isa(Message.Type type) {
+        return ( this.type == type );
+    }
+
+    public int getSourceProcessId() {
+        return this.sourceProcessId;
+    }
+
+    public Timestamp getSourceClock() {
+        return this.sourceClock;
+    }
+
+    public String getLockKey() {
+        return this.lockKey;
+    }
+
+    public Request getRequest() {
+
+        if( ! this.isa(Type.REQUEST) && ! this.isa(Type.RELEASE_REQUEST) ) {
+            return null;
+        }
+
+        return new Request(this);
+
+    }
+
+    // The text wire format, see TextMessageCodec.
+    @Override
+    public String toString() {
+
+        if( this.isa(Type.DEBUG) ) {
+            int[] debugData = (int[]) this.data;
+            return String.format("DEBUG(%d,%d,%d,%d)", debugData[0], debugData[1], debugData[2], debugData[3]);
+        }
+
+        if( this.sourceClock == null ) {
+            return String.format("%s(%d)", this.type.name(), this.sourceProcessId);
+        }
+
+        // Lock names must not contain ',', '(', ')' or whitespace to survive the text format, see TextMessageCodec.accepts().
+        if( ! this.lockKey.equals(DEFAULT_LOCK) ) {
+            return String.format("%s(%s,%d,%s)", this.type.name(), this.sourceClock, this.sourceProcessId, this.lockKey);
+        }
+
+        return String.format("%s(%s,%d)", this.type.name(), this.sourceClock, this.sourceProcessId);
+
+    }
+
+}
@@ -0,0 +1,26 @@
+package maekawa;
+
+import java.nio.ByteBuffer;
+
+public interface MessageCodec {
+
+    // Largest frame a receiver buffers, length prefix or line terminator included. A peer going past it
+    // is treated like a corrupt boundary rather than let it grow our read buffer without end.
+    int MAX_FRAME_SIZE = 1 << 20;
+
+    // Upper bound of the bytes encode() will write for this message, used to size the output buffer.
+    int maxEncodedSize(Message message);
+
+    // Writes one complete frame for the message at the buffer's position.
+    void encode(Message message, ByteBuffer buffer);
+
+    // Whether messages about this lock survive encode() and decode() unchanged.
+    boolean accepts(String lockKey);
+
+    // Reads one frame from the buffer's position. Returns null and leaves the position untouched
+    // when the buffer does not hold a complete frame yet. A complete frame that is not a known
+    // message is consumed and also returns null, so callers should check whether the position moved.
+    // Throws a RuntimeException when the frame's own boundary is corrupt and nothing after it can be trusted.
+    Message decode(ByteBuffer buffer);
+
+}
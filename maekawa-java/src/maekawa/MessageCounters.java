@@ -0,0 +1,72 @@
+package maekawa;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * How many messages of each type a node sent. Maekawa's algorithm needs between 3K and 5K protocol
+ * messages per critical section for quorums of K nodes: REQUEST, GRANT and RELEASE to every member
+ * without contention, plus FAILED and INQUIRE/YIELD with it. A RELEASE_REQUEST stands for a RELEASE
+ * and the next REQUEST, so closed-loop clients can get below 3K.
+ */
+public class MessageCounters {
+
+    private static final Message.Type[] PROTOCOL_TYPES = {
+        Message.Type.REQUEST, Message.Type.GRANT, Message.Type.RELEASE, Message.Type.RELEASE_REQUEST, Message.Type.FAILED, Message.Type.INQUIRE, Message.Type.YIELD, Message.Type.REVOKE
+    };
+
+    private AtomicLongArray counts = new AtomicLongArray(Message.Type.values().length);
+
+    public void count(Message.Type type, int messages) {
+        this.counts.addAndGet(type.ordinal(), messages);
+    }
+
+    public long get(Message.Type type) {
+        return this.counts.get(type.ordinal());
+    }
+
+    public void add(MessageCounters that) {
+        for( Message.Type type : Message.Type.values() ) {
+            this.count(type, (int) that.get(type));
+        }
+    }
+
+    // Only the lock protocol, DEBUG and FINISHED belong to the verification.
+    public long getProtocolTotal() {
+
+        long total = 0;
+
+        for( Message.Type type : PROTOCOL_TYPES ) {
+            total += this.get(type);
+        }
+
+        return total;
+
+    }
+
+    // Where a measured rate falls against the 3K to 5K range: "below", "within" or "above" it.
+    public static String compareToMaekawaRange(double messagesPerCS, double quorumSize) {
+
+        if( messagesPerCS < 3 * quorumSize ) {
+            return "below";
+        }
+
+        return ( messagesPerCS <= 5 * quorumSize ) ? "within" : "above";
+
+    }
+
+    @Override
+    public String toString() {
+
+        StringBuilder stringBuilder = new StringBuilder();
+
+        for( Message.Type type : PROTOCOL_TYPES ) {
+            stringBuilder.append(String.format("%s=%d ", type, this.get(type)));
+        }
+
+        stringBuilder.append(String.format("total=%d", this.getProtocolTotal()));
+
+        return stringBuilder.toString();
+
+    }
+
+}
@@ -0,0 +1,609 @@
+package maekawa;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.util.*;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.LinkedBlockingQueue;
+
+public class Node implements Runnable {
+
+    public static boolean verboseMode = false;
+    public static boolean lamportClockMode = false;
+    public static boolean differentialClockMode = false;
+    public static boolean stickyGrantsMode = false;
+    public static int cohortFairnessBound = 8;
+    public static boolean loadAwareQuorumsMode = false;
+    public static String csLogDirectory = null;
+
+    public static void main(String[] args) {
+
+        if( args.length < 2 ) {
+            System.out.println("Usage: Node <node id> <config file path> (--verbose) (--text-wire) (--lamport-clock) (--differential-clock) (--sticky-grants) (--cohort-bound <n>) (--load-aware-quorums) (--cs-log <directory>)");
+            System.exit(1);
+        }
+
+        Node.parseOptions(args, 2);
+
+        Node node = null;
+
+        try {
+            node = ConfigFile.process(Integer.parseInt(args[0]), ConfigFile.tokenize(args[1]));
+        } catch (IOException e) {
+            System.err.printf("Failed to parse config file: %s\nWill now exit!\n", e);
+            System.exit(1);
+        } catch (IllegalArgumentException e) {
+            System.err.printf("Invalid config file: %s\nWill now exit!\n", e.getMessage());
+            System.exit(1);
+        }
+
+        if( node != null ) {
+
+            if( Node.verboseMode ) {
+                System.out.println(node);
+            }
+
+            node.run();
+
+            if( Node.verboseMode ) {
+                System.out.println(node.context.transport);
+                System.out.printf("Messages sent: %s\n", node.context.messagesSent);
+                System.out.println(node.context.metrics);
+            }
+
+            System.out.flush();
+
+        }
+
+        System.exit(0);
+
+    }
+
+    // The options are shared by every node in the JVM and must be the same on every node of the system.
+    public static void parseOptions(String[] args, int firstOption) {
+
+        for( int i = firstOption; i < args.length; i++ ) {
+
+            if( args[i].equals("--verbose") ) {
+                Node.verboseMode = true;
+            }
+
+            // Human readable messages on the wire, every node in the system must be started with it.
+            if( args[i].equals("--text-wire") ) {
+                Node.codec = new TextMessageCodec();
+            }
+
+            // A single Lamport counter instead of a vector clock, every node in the system must be started with it.
+            if( args[i].equals("--lamport-clock") ) {
+                Node.lamportClockMode = true;
+            }
+
+            // Vector clock messages only carry the entries that changed since the last message to that node.
+            if( args[i].equals("--differential-clock") ) {
+                Node.differentialClockMode = true;
+            }
+
+            // Keep the grants after the CS until an arbiter asks for them, every node in the system must be started with it.
+            if( args[i].equals("--sticky-grants") ) {
+                Node.stickyGrantsMode = true;
+            }
+
+            // How many critical sections in a row the threads of a node may pass on to each other, 1 disables it.
+            if( args[i].equals("--cohort-bound") && i + 1 < args.length ) {
+                Node.cohortFairnessBound = Math.max(1, Integer.parseInt(args[++i]));
+            }
+
+            // Pick each quorum around the arbiters that were slow to GRANT lately, nodes may differ in this.
+            if( args[i].equals("--load-aware-quorums") ) {
+                Node.loadAwareQuorumsMode = true;
+            }
+
+            // Append the CS executions to a log per node for CSLogVerifier, every node in the system must be started with it.
+            if( args[i].equals("--cs-log") && i + 1 < args.length ) {
+                Node.csLogDirectory = args[++i];
+            }
+
+        }
+
+    }
+
+    public static MessageCodec codec = new BinaryMessageCodec();
+
+    private NodeContext context;
+
+    private int numReqs;
+    private ExponentialDelay delays;
+
+    private BlockingQueue<Message> messageQueue;
+    private Coordinator coordinator;
+    private Thread verificationHandler;
+
+
+    private ConcurrentHashMap<String, Cohort> cohorts = new ConcurrentHashMap<String, Cohort>();
+
+    // Guarded by this, see start() and shutdown().
+    private boolean started = false;
+    private boolean terminated = false;
+
+    public Node(NodeContext context, int totalNodes, int numReqs, ExponentialDelay delays) {
+
+        this.context = context;
+        this.delays = delays;
+        this.numReqs = numReqs;
+        this.messageQueue = new LinkedBlockingQueue<Message>();
+        this.coordinator = new Coordinator(context, this.messageQueue);
+        context.arbiterLatencies = new ArbiterLatencies(totalNodes);
+
+        // Requests are prioritized by (timestamp, node id) either way, vector clocks are kept for diagnosing causality.
+        if( Node.lamportClockMode ) {
+            context.clock = new LamportClock(context.nodeId);
+        } else {
+            VectorClock vectorClock = new VectorClock(totalNodes, context.nodeId);
+            if( Node.differentialClockMode ) {
+                vectorClock.enableDifferentialTimestamps();
+            }
+            context.clock = vectorClock;
+        }
+
+        if( context.nodeId == 0 && Node.csLogDirectory == null ) {
+            context.verificationHandler = new VerificationHandler(context, totalNodes * this.numReqs);
+            this.verificationHandler = new Thread(context.verificationHandler);
+        }
+
+        context.transport.open(context, this.messageQueue);
+        context.metrics.register(context.nodeId);
+
+    }
+
+    public int getNumReqs() {
+        return this.numReqs;
+    }
+
+    public NodeContext getContext() {
+        return this.context;
+    }
+
+    // Starts receiving and serving messages, acquire() only completes once the node is started. run() starts
+    // the node itself.
+    public synchronized void start() {
+
+        if( this.started ) {
+            return;
+        }
+
+        this.started = true;
+        this.context.transport.start();
+        this.coordinator.start();
+
+    }
+
+    // Stops serving as an arbiter once nobody waits on us any more, so the other nodes should be done with
+    // their locks too. Returns when the coordinator has stopped and the transport is closed, nodes sharing a
+    // JVM are shut down from their own threads since each one waits for the others' sticky grants.
+    public void shutdown() {
+
+        // 1. Give back the grants we kept after the last CS, the arbiters holding them cannot stop otherwise.
+        for( LockAcquisition acquisition : this.coordinator.getAcquisitions() ) {
+            if( acquisition.isRetained() ) {
+                acquisition.relinquish();
+                this.coordinator.removeAcquisition(acquisition.getLockKey());
+            }
+        }
+
+        this.context.transport.flush();
+
+        // 2. The same FINISHED the verification sends once every node is done.
+        this.messageQueue.offer(new Message(Message.Type.FINISHED, -1, null));
+        this.awaitTermination();
+
+    }
+
+    private synchronized void awaitTermination() {
+
+        if( this.terminated ) {
+            return;
+        }
+
+        this.terminated = true;
+
+        try {
+            this.coordinator.join();
+        } catch (InterruptedException e) {}
+
+        this.context.transport.close();
+
+        if( this.verificationHandler != null ) {
+            try {
+                this.verificationHandler.join();
+            } catch (InterruptedException e) {}
+        }
+
+    }
+
+    // Locks are independent of each other, a node can acquire or hold any number of them at the same time. Threads
+    // of the node that want the same lock queue behind each other, see Cohort. The future completes on the coordinator
+    // thread or on the thread passing the lock on, use the *Async methods for anything slow.
+    public CompletableFuture<Integer> acquire(String lockKey) {
+
+        if( ! Node.codec.accepts(lockKey) ) {
+            CompletableFuture<Integer> rejected = new CompletableFuture<Integer>();
+            rejected.completeExceptionally(new IllegalArgumentException(String.format("Lock '%s' cannot be sent with %s", lockKey, Node.codec.getClass().getSimpleName())));
+            return rejected;
+        }
+
+        // 1. Only the first of our threads asks the quorum, the others wait for it to pass the lock on.
+        CompletableFuture<Integer> future = new CompletableFuture<Integer>();
+
+        if( this.cohortFor(lockKey).join(future) ) {
+            this.requestLock(lockKey, future);
+        }
+
+        return future;
+
+    }
+
+    // Gets the lock from the quorum for the thread of ours that is first in the cohort.
+    private void requestLock(String lockKey, CompletableFuture<Integer> future) {
+
+        // 1. With sticky grants we may still hold every GRANT from the last time, then no message is needed.
+        LockAcquisition retained = this.coordinator.getAcquisition(lockKey);
+
+        if( retained != null && retained.isRetained() ) {
+
+            if( retained.reenter() ) {
+
+                int enterCSTime = 0;
+
+                synchronized (this.context.lock) {
+                    this.context.clock.tickForMessage();
+                    enterCSTime = this.context.clock.getLogicalClockValue();
+                }
+
+                this.context.metrics.entered(lockKey);
+                future.complete(enterCSTime);
+                return;
+
+            }
+
+            // Some arbiter took its GRANT back meanwhile, give back the others too and ask like everyone else.
+            retained.relinquish();
+            this.coordinator.removeAcquisition(lockKey);
+
+        }
+
+        // 2. Otherwise ask for it like everyone else.
+        Set<Integer> quorum = this.selectQuorum();
+        LockAcquisition acquisition = new LockAcquisition(this.context, lockKey, quorum, future);
+
+        if( ! this.coordinator.addAcquisition(acquisition) ) {
+            future.completeExceptionally(new IllegalStateException(String.format("Lock '%s' is already being acquired by Node(%d)", lockKey, this.context.nodeId)));
+            this.leaveCohort(lockKey);
+            return;
+        }
+
+        // Send Request(ts,i) to all quorum members.
+        Message.broadcast(this.context, Message.Type.REQUEST, lockKey, quorum);
+        this.context.transport.flush();
+
+    }
+
+    // Frees the lock for our threads once this node no longer holds or acquires it. A thread that joined
+    // the cohort meanwhile is first now and asks the quorum itself.
+    private void leaveCohort(String lockKey) {
+
+        CompletableFuture<Integer> next = this.cohortFor(lockKey).leave();
+
+        if( next != null ) {
+            this.requestLock(lockKey, next);
+        }
+
+    }
+
+    // The quorum for our next request, every request asks the quorum system again. Load aware, it leaves
+    // out the arbiters that were slow to GRANT lately if some quorum can do without them.
+    private Set<Integer> selectQuorum() {
+
+        if( Node.loadAwareQuorumsMode ) {
+
+            Set<Integer> quorum = this.context.quorumSystem.selectQuorum(this.context.nodeId, this.context.arbiterLatencies.slowArbiters());
+
+            if( quorum != null ) {
+                return quorum;
+            }
+
+        }
+
+        return this.context.quorumSystem.selectQuorum(this.context.nodeId, Collections.<Integer>emptySet());
+
+    }
+
+    private Cohort cohortFor(String lockKey) {
+
+        Cohort cohort = this.cohorts.get(lockKey);
+
+        if( cohort == null ) {
+            Cohort newCohort = new Cohort(Node.cohortFairnessBound);
+            cohort = this.cohorts.putIfAbsent(lockKey, newCohort);
+            cohort = ( cohort == null ) ? newCohort : cohort;
+        }
+
+        return cohort;
+
+    }
+
+    public int release(String lockKey) {
+        return this.release(lockKey, Node.stickyGrantsMode);
+    }
+
+    // With keepGrants the grants stay with us until their arbiters ask for them, see LockAcquisition.retain().
+    public int release(String lockKey, boolean keepGrants) {
+
+        long startTime = this.context.metrics.left(lockKey);
+
+        try {
+            return this.releaseOrPassOn(lockKey, keepGrants);
+        } finally {
+            this.context.metrics.releaseTime.record(System.nanoTime() - startTime);
+        }
+
+    }
+
+    private int releaseOrPassOn(String lockKey, boolean keepGrants) {
+
+        // 0. If another of our threads is waiting, it gets the lock next.
+        CompletableFuture<Integer> next = this.cohortFor(lockKey).nextWaiter();
+
+        if( next != null ) {
+            return this.passOn(lockKey, next);
+        }
+
+        int exitCSTime = 0;
+
+        synchronized (this.context.lock) {
+            this.context.clock.tickForMessage();
+            exitCSTime = this.context.clock.getLogicalClockValue();
+        }
+
+        // 1. Set that we are no longer in the critical section, keeping the grants or sending RELEASE(ts,i) to
+        // the quorum members we asked.
+        if( keepGrants ) {
+            this.coordinator.getAcquisition(lockKey).retain();
+        } else {
+            LockAcquisition acquisition = this.coordinator.removeAcquisition(lockKey);
+            Message.broadcast(this.context, Message.Type.RELEASE, lockKey, acquisition.getQuorum());
+        }
+
+        this.context.transport.flush();
+
+        // 2. Only now may our other threads acquire the lock again.
+        this.leaveCohort(lockKey);
+
+        // 3. Return the leave logical clock time.
+        return exitCSTime;
+
+    }
+
+    // Releases the lock and requests it again with a single RELEASE_REQUEST to every quorum member, for
+    // clients that want it back right away. The returned future completes like acquire()'s once we have it again.
+    public CompletableFuture<Integer> releaseAndRequest(String lockKey) {
+
+        CompletableFuture<Integer> future = new CompletableFuture<Integer>();
+        this.releaseAndRequest(lockKey, future);
+
+        return future;
+
+    }
+
+    // Same, completing the given future, returns the logical clock time at which the lock was released.
+    public int releaseAndRequest(String lockKey, CompletableFuture<Integer> future) {
+
+        long startTime = this.context.metrics.left(lockKey);
+
+        try {
+            return this.releaseOrPassOnAndRequest(lockKey, future);
+        } finally {
+            this.context.metrics.releaseTime.record(System.nanoTime() - startTime);
+        }
+
+    }
+
+    private int releaseOrPassOnAndRequest(String lockKey, CompletableFuture<Integer> future) {
+
+        // 0. Another of our threads waiting for the lock gets it first, the new request queues behind it.
+        // The cohort is still busy, so join() only queues it.
+        Cohort cohort = this.cohortFor(lockKey);
+        CompletableFuture<Integer> next = cohort.nextWaiter();
+
+        if( next != null ) {
+            cohort.join(future);
+            return this.passOn(lockKey, next);
+        }
+
+        // The cohort stays busy, the new request is made for the caller.
+        cohort.newQuorumRound();
+
+        return this.requestAgain(lockKey, future);
+
+    }
+
+    // Passes the lock to another of our threads, directly as long as that is fair to the other nodes and
+    // otherwise through a new quorum round made on its behalf.
+    private int passOn(String lockKey, CompletableFuture<Integer> next) {
+
+        if( ! this.cohortFor(lockKey).passLocally() ) {
+            return this.requestAgain(lockKey, next);
+        }
+
+        int exitCSTime = 0, enterCSTime = 0;
+
+        synchronized (this.context.lock) {
+            this.context.clock.tickForMessage();
+            exitCSTime = this.context.clock.getLogicalClockValue();
+            this.context.clock.tickForMessage();
+            enterCSTime = this.context.clock.getLogicalClockValue();
+        }
+
+        this.context.metrics.entered(lockKey);
+        next.complete(enterCSTime);
+
+        return exitCSTime;
+
+    }
+
+    private int requestAgain(String lockKey, CompletableFuture<Integer> future) {
+
+        int exitCSTime = 0;
+
+        // 1. Swap the acquisition we hold for a new one before any reply to the new request can arrive.
+        Set<Integer> quorum = this.selectQuorum();
+        LockAcquisition acquisition = new LockAcquisition(this.context, lockKey, quorum, future);
+
+        Set<Integer> previousQuorum = this.coordinator.removeAcquisition(lockKey).getQuorum();
+        this.coordinator.addAcquisition(acquisition);
+
+        synchronized (this.context.lock) {
+            this.context.clock.tickForMessage();
+            exitCSTime = this.context.clock.getLogicalClockValue();
+        }
+
+        // 2. Send RELEASE_REQUEST(ts,i) to all quorum members, ts being the priority of the new request. If the
+        // quorum changed, a RELEASE to the old one and a REQUEST to the new one, every arbiter must see the same ts.
+        if( quorum.equals(previousQuorum) ) {
+            Message.broadcast(this.context, Message.Type.RELEASE_REQUEST, lockKey, quorum);
+        } else {
+            Message.broadcast(this.context, Message.Type.RELEASE, lockKey, previousQuorum);
+            Message.broadcast(this.context, Message.Type.REQUEST, lockKey, quorum);
+        }
+
+        this.context.transport.flush();
+
+        // 3. Return the leave logical clock time.
+        return exitCSTime;
+
+    }
+
+    // Blocking version of acquire(), returns the logical clock time at which the critical section was entered.
+    public int enterCS(String lockKey) {
+        return this.acquire(lockKey).join();
+    }
+
+    public int leaveCS(String lockKey) {
+        return this.release(lockKey);
+    }
+
+    @Override
+    public void run() {
+
+        this.start();
+
+        // Only the benchmark below sends records to verify, the acquire() API alone never does.
+        if( this.verificationHandler != null ) {
+            this.verificationHandler.start();
+        }
+
+        CSEventLog csLog = null;
+
+        if( Node.csLogDirectory != null ) {
+            try {
+                csLog = new CSEventLog(CSEventLog.fileFor(Node.csLogDirectory, this.context.nodeId));
+            } catch (IOException e) {
+                System.err.printf("Failed to open the CS log: %s\nWill now exit!\n", e);
+                System.exit(1);
+            }
+        }
+
+        // The next request when the last release already made it, see releaseAndRequest().
+        CompletableFuture<Integer> requestedAgain = null;
+
+        for( int requestId = 1; requestId <= this.numReqs; requestId++ ) {
+
+            int enterCSTime = ( requestedAgain != null ) ? requestedAgain.join() : this.enterCS(Message.DEFAULT_LOCK);
+            requestedAgain = null;
+
+            // 2. Pretend to do some work in our CS.
+            try {
+                Thread.sleep(this.delays.getCSDelay());
+            } catch (InterruptedException e) {}
+
+
+
+
+            // 3. We are done with our fake work, so leave the CS. Without a pause before the next request
+            // it goes out in the same message, with sticky grants we keep them until the last request.
+            int irDelay = this.delays.getIRDelay();
+            int exitCSTime = 0;
+
+            if( Node.stickyGrantsMode ) {
+                exitCSTime = this.release(Message.DEFAULT_LOCK, requestId < this.numReqs);
+            } else if( irDelay == 0 && requestId < this.numReqs ) {
+                requestedAgain = new CompletableFuture<Integer>();
+                exitCSTime = this.releaseAndRequest(Message.DEFAULT_LOCK, requestedAgain);
+            } else {
+                exitCSTime = this.leaveCS(Message.DEFAULT_LOCK);
+            }
+
+            // 4. Log the execution, or send it to the verification process running at Node(0).
+            if( csLog != null ) {
+                try {
+                    csLog.append(this.context.nodeId, requestId, enterCSTime, exitCSTime);
+                } catch (IOException e) {
+                    System.err.printf("Failed to write the CS log: %s\nWill now exit!\n", e);
+                    System.exit(1);
+                }
+            } else {
+                this.context.transport.send(0, Message.debug(this.context.nodeId, requestId, enterCSTime, exitCSTime));
+                this.context.transport.flush();
+            }
+
+            try {
+                Thread.sleep(irDelay);
+            } catch (InterruptedException e) {}
+
+        }
+
+        // 5. With CS logs nobody counts our executions, tell Node(0) we are done.
+        if( csLog != null ) {
+
+            try {
+                csLog.close();
+            } catch (IOException e) {
+                System.err.printf("Failed to close the CS log: %s\n", e);
+            }
+
+            this.context.transport.send(0, new Message(Message.Type.FINISHED, this.context.nodeId, null));
+            this.context.transport.flush();
+
+        }
+
+        // 6. Keep serving the other nodes until the verification says everyone is done.
+        this.awaitTermination();
+
+    }
+
+    @Override
+    public String toString() {
+
+        StringBuilder stringBuilder = new StringBuilder();
+
+        stringBuilder.append(String.format("Node Id: %d\n", this.context.nodeId));
+        stringBuilder.append(String.format("Requests: %d\n", this.numReqs));
+        stringBuilder.append(String.format("Delays: %s\n", this.delays));
+
+        synchronized (this.context.lock) {
+            stringBuilder.append(String.format("Initial Clock: %s\n", this.context.clock));
+        }
+
+        stringBuilder.append("Neighboring Nodes:\n");
+        Set<Integer> quorumMemberNodeIds = this.context.quorumMembers.keySet();
+        for( Map.Entry<Integer, InetSocketAddress> neighbor : this.context.nodeAddresses.entrySet() ) {
+            stringBuilder.append(String.format(" >> [%s] Node(%d) at %s\n", quorumMemberNodeIds.contains(neighbor.getKey()) ? "Q" : "-", neighbor.getKey(), neighbor.getValue() ));
+        }
+
+        return stringBuilder.toString();
+
+    }
+
+
+}
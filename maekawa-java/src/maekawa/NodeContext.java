@@ -0,0 +1,37 @@
+package maekawa;
+
+import java.net.InetSocketAddress;
+import java.util.HashMap;
+
+/**
+ * Identity and topology of one node. Every component of a node shares its context, so several
+ * nodes can live in the same JVM.
+ */
+public class NodeContext {
+
+    public final int nodeId;
+
+    public HashMap<Integer, InetSocketAddress> nodeAddresses = new HashMap<Integer, InetSocketAddress>();
+    public HashMap<Integer, InetSocketAddress> quorumMembers = new HashMap<Integer, InetSocketAddress>();
+
+    // Picks the quorum of each request, quorumMembers is the one it picks when no member is avoided.
+    public QuorumSystem quorumSystem;
+    public ArbiterLatencies arbiterLatencies;
+
+    // Guards the clock, it is ticked by the application thread and merged by the coordinator.
+    public final Object lock = new Object();
+    public LogicalClock clock;
+
+    public Transport transport;
+    public final MessageCounters messagesSent = new MessageCounters();
+    public final NodeMetrics metrics = new NodeMetrics(this.messagesSent);
+
+    // Only node 0 verifies the CS executions of the whole system.
+    public VerificationHandler verificationHandler = null;
+
+    public NodeContext(int nodeId, Transport transport) {
+        this.nodeId = nodeId;
+        this.transport = transport;
+    }
+
+}
@@ -0,0 +1,186 @@
+package maekawa;
+
+import java.lang.management.ManagementFactory;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+import javax.management.InstanceAlreadyExistsException;
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+
+/**
+ * Latency and queue depth histograms of one node, filled in where the work happens and published
+ * through JMX. Histograms are lock-free, so recording costs the application and coordinator threads
+ * a few atomic adds.
+ */
+public class NodeMetrics implements NodeMetricsMXBean {
+
+    public final Histogram acquisitionLatency = new Histogram();
+    public final Histogram holdTime = new Histogram();
+    public final Histogram releaseTime = new Histogram();
+    public final Histogram serviceTime = new Histogram();
+    public final Histogram incomingQueueDepth = new Histogram();
+    public final Histogram arbiterQueueDepth = new Histogram();
+
+    private MessageCounters messagesSent;
+    private long startTime = System.nanoTime();
+
+    // When each lock we hold was entered, for the hold time.
+    private ConcurrentHashMap<String, Long> enteredAt = new ConcurrentHashMap<String, Long>();
+
+    public NodeMetrics(MessageCounters messagesSent) {
+        this.messagesSent = messagesSent;
+    }
+
+    // Replaces the MBean of an earlier node with the same id in this JVM.
+    public void register(int nodeId) {
+
+        try {
+
+            MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+            ObjectName name = new ObjectName(String.format("maekawa:type=Node,id=%d", nodeId));
+
+            try {
+                server.registerMBean(this, name);
+            } catch (InstanceAlreadyExistsException e) {
+                server.unregisterMBean(name);
+                server.registerMBean(this, name);
+            }
+
+        } catch (JMException e) {
+            System.err.printf("Failed to register the metrics of Node(%d): %s\n", nodeId, e);
+        }
+
+    }
+
+    // Called right before an acquisition's future completes, however the lock was entered, so it holds for
+    // enterCS() and acquire() alike.
+    public void entered(String lockKey) {
+        this.enteredAt.put(lockKey, System.nanoTime());
+    }
+
+    // Counts the critical section and its hold time, returns the current time, which is when the release starts.
+    public long left(String lockKey) {
+
+        long now = System.nanoTime();
+        Long enteredAt = this.enteredAt.remove(lockKey);
+
+        if( enteredAt != null ) {
+            this.holdTime.record(now - enteredAt);
+        }
+
+        return now;
+
+    }
+
+    private static double micros(long nanos) {
+        return nanos / 1e3;
+    }
+
+    @Override
+    public long getCriticalSections() {
+        return this.holdTime.getCount();
+    }
+
+    @Override
+    public double getCriticalSectionsPerSecond() {
+        return this.holdTime.getCount() / Math.max((System.nanoTime() - this.startTime) / 1e9, 1e-9);
+    }
+
+    @Override
+    public double getAcquisitionLatencyP50() {
+        return micros(this.acquisitionLatency.getPercentile(50));
+    }
+
+    @Override
+    public double getAcquisitionLatencyP99() {
+        return micros(this.acquisitionLatency.getPercentile(99));
+    }
+
+    @Override
+    public double getAcquisitionLatencyP999() {
+        return micros(this.acquisitionLatency.getPercentile(99.9));
+    }
+
+    @Override
+    public double getAcquisitionLatencyMax() {
+        return micros(this.acquisitionLatency.getMax());
+    }
+
+    @Override
+    public double getHoldTimeP50() {
+        return micros(this.holdTime.getPercentile(50));
+    }
+
+    @Override
+    public double getHoldTimeP99() {
+        return micros(this.holdTime.getPercentile(99));
+    }
+
+    @Override
+    public double getReleaseTimeP50() {
+        return micros(this.releaseTime.getPercentile(50));
+    }
+
+    @Override
+    public double getReleaseTimeP99() {
+        return micros(this.releaseTime.getPercentile(99));
+    }
+
+    @Override
+    public double getServiceTimeP50() {
+        return micros(this.serviceTime.getPercentile(50));
+    }
+
+    @Override
+    public double getServiceTimeP99() {
+        return micros(this.serviceTime.getPercentile(99));
+    }
+
+    @Override
+    public double getServiceTimeMax() {
+        return micros(this.serviceTime.getMax());
+    }
+
+    @Override
+    public long getIncomingQueueDepthP99() {
+        return this.incomingQueueDepth.getPercentile(99);
+    }
+
+    @Override
+    public long getIncomingQueueDepthMax() {
+        return this.incomingQueueDepth.getMax();
+    }
+
+    @Override
+    public long getArbiterQueueDepthP99() {
+        return this.arbiterQueueDepth.getPercentile(99);
+    }
+
+    @Override
+    public long getArbiterQueueDepthMax() {
+        return this.arbiterQueueDepth.getMax();
+    }
+
+    @Override
+    public Map<String, Long> getMessagesSent() {
+
+        LinkedHashMap<String, Long> messagesSent = new LinkedHashMap<String, Long>();
+
+        for( Message.Type type : Message.Type.values() ) {
+            messagesSent.put(type.name(), this.messagesSent.get(type));
+        }
+
+        return messagesSent;
+
+    }
+
+    @Override
+    public String toString() {
+        return String.format("Acquisition p50 %.0f us, p99 %.0f us, max %.0f us; hold p50 %.0f us; release p50 %.0f us; service p50 %.1f us, p99 %.1f us; incoming queue p99 %d, arbiter queue p99 %d",
+            this.getAcquisitionLatencyP50(), this.getAcquisitionLatencyP99(), this.getAcquisitionLatencyMax(), this.getHoldTimeP50(), this.getReleaseTimeP50(), this.getServiceTimeP50(), this.getServiceTimeP99(), this.getIncomingQueueDepthP99(), this.getArbiterQueueDepthP99());
+    }
+
+}
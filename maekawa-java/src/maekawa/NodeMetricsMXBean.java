@@ -0,0 +1,48 @@
+package maekawa;
+
+import java.util.Map;
+
+/**
+ * What a node publishes over JMX as maekawa:type=Node,id=<node id>. Latencies are in
+ * microseconds, percentiles come from the node's histograms since it started.
+ */
+public interface NodeMetricsMXBean {
+
+    long getCriticalSections();
+
+    double getCriticalSectionsPerSecond();
+
+    // From sending the REQUEST to the last GRANT, handoffs between our own threads are not counted.
+    double getAcquisitionLatencyP50();
+
+    double getAcquisitionLatencyP99();
+
+    double getAcquisitionLatencyP999();
+
+    double getAcquisitionLatencyMax();
+
+    double getHoldTimeP50();
+
+    double getHoldTimeP99();
+
+    double getReleaseTimeP50();
+
+    double getReleaseTimeP99();
+
+    double getServiceTimeP50();
+
+    double getServiceTimeP99();
+
+    double getServiceTimeMax();
+
+    long getIncomingQueueDepthP99();
+
+    long getIncomingQueueDepthMax();
+
+    long getArbiterQueueDepthP99();
+
+    long getArbiterQueueDepthMax();
+
+    Map<String, Long> getMessagesSent();
+
+}
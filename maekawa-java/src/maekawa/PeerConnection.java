@@ -0,0 +1,317 @@
+package maekawa;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.channels.SocketChannel;
+import java.util.ArrayList;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+
+/**
+ * The outgoing stream to one peer. Frames are staged by send() and packed into a single batch by
+ * flush(), which queues it for this connection's own writer thread, so a slow or restarting peer
+ * only delays its own traffic. The queue is bounded: once a peer is that far behind, flush() blocks
+ * the caller until the writer catches up.
+ */
+public class PeerConnection implements Runnable {
+
+    private static final int OUTBOUND_QUEUE_CAPACITY = 1024;
+    private static final long RETRY_DELAY_MILLIS = 1000;
+
+    // How many queued batches the writer hands to the socket in one gathering write.
+    private static final int MAX_BATCHES_PER_WRITE = 64;
+
+    // Queued by close() behind the remaining frames to stop the writer once they are flushed.
+    private static final ByteBuffer END_OF_STREAM = ByteBuffer.allocate(0);
+
+    private InetSocketAddress address;
+    private SocketChannel channel = null;
+
+    // Frames sent since the last flush, guarded by itself.
+    private ArrayList<ByteBuffer> stagedFrames = new ArrayList<ByteBuffer>();
+    private int stagedBytes = 0;
+
+    private long messagesFlushed = 0, batchesFlushed = 0, largestBatch = 0;
+    private volatile long writes = 0;
+
+    private BlockingQueue<ByteBuffer> outgoingFrames = new ArrayBlockingQueue<ByteBuffer>(OUTBOUND_QUEUE_CAPACITY);
+    private Thread writer = null;
+    private volatile boolean closing = false;
+
+    public PeerConnection(InetSocketAddress address) {
+        this.address = address;
+    }
+
+    public InetSocketAddress getAddress() {
+        return this.address;
+    }
+
+    public synchronized void start() {
+
+        if( this.writer != null ) {
+            return;
+        }
+
+        this.writer = new Thread(this, "PeerConnection(" + this.address + ")");
+        this.writer.setDaemon(true);
+        this.writer.start();
+
+    }
+
+    public void send(ByteBuffer frame) {
+
+        synchronized (this.stagedFrames) {
+            this.stagedFrames.add(frame);
+            this.stagedBytes += frame.remaining();
+        }
+
+    }
+
+    // Packs everything sent since the last flush back to back into one batch, the receiver decodes the
+    // frames one after another exactly as if they had been written separately.
+    public void flush() {
+
+        synchronized (this.stagedFrames) {
+
+            int batchSize = this.stagedFrames.size();
+
+            if( batchSize == 0 ) {
+                return;
+            }
+
+            ByteBuffer batch = ( batchSize == 1 ) ? this.stagedFrames.get(0) : ByteBuffer.allocate(this.stagedBytes);
+
+            if( batchSize > 1 ) {
+                for( ByteBuffer frame : this.stagedFrames ) {
+                    batch.put(frame);
+                }
+                batch.flip();
+            }
+
+            this.stagedFrames.clear();
+            this.stagedBytes = 0;
+
+            this.messagesFlushed += batchSize;
+            this.batchesFlushed++;
+            this.largestBatch = Math.max(this.largestBatch, batchSize);
+
+            // Still under the lock so batches from different threads keep the order they were flushed in.
+            this.enqueue(batch);
+
+        }
+
+    }
+
+    private void enqueue(ByteBuffer batch) {
+
+        try {
+            this.outgoingFrames.put(batch);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+
+    }
+
+    public long getMessagesFlushed() {
+        synchronized (this.stagedFrames) {
+            return this.messagesFlushed;
+        }
+    }
+
+    public long getBatchesFlushed() {
+        synchronized (this.stagedFrames) {
+            return this.batchesFlushed;
+        }
+    }
+
+    public long getLargestBatch() {
+        synchronized (this.stagedFrames) {
+            return this.largestBatch;
+        }
+    }
+
+    public long getWrites() {
+        return this.writes;
+    }
+
+    @Override
+    public void run() {
+
+        ByteBuffer[] batches = new ByteBuffer[MAX_BATCHES_PER_WRITE];
+        ArrayList<ByteBuffer> ready = new ArrayList<ByteBuffer>(MAX_BATCHES_PER_WRITE);
+
+        try {
+
+            boolean endOfStream = false;
+
+            while( ! endOfStream ) {
+
+                // 1. Wait for a batch, then take whatever else has been flushed meanwhile.
+                ready.add(this.outgoingFrames.take());
+                this.outgoingFrames.drainTo(ready, MAX_BATCHES_PER_WRITE - 1);
+
+                int count = 0;
+
+                for( ByteBuffer batch : ready ) {
+                    if( batch == END_OF_STREAM ) {
+                        endOfStream = true;
+                        break;
+                    }
+                    batches[count++] = batch;
+                }
+
+                ready.clear();
+
+                // 2. Keep retrying until the peer is back, unless we are shutting down and it is gone for good.
+                while( count > 0 && ! this.write(batches, count) && ! this.closing ) {
+                    Thread.sleep(RETRY_DELAY_MILLIS);
+                }
+
+                for( int i = 0; i < count; i++ ) {
+                    batches[i] = null;
+                }
+
+            }
+
+        } catch (InterruptedException e) {
+        } finally {
+            this.disconnect();
+        }
+
+    }
+
+    // Never rewinds a batch: bytes that reached a dropped connection may have been delivered already, so
+    // only the batches that were not touched yet are written again on the next connection.
+    private boolean write(ByteBuffer[] batches, int count) {
+
+        int[] starts = new int[count];
+
+        for( int i = 0; i < count; i++ ) {
+            starts[i] = batches[i].position();
+        }
+
+        while (true) {
+
+            // Remember whether we were writing to an already open stream, a failure there only means the
+            // peer dropped the connection and we should reconnect straight away before giving up.
+            boolean wasConnected = ( this.channel != null );
+
+            try {
+
+                if( this.channel == null ) {
+                    this.connect();
+                }
+
+                int first = this.firstUnwritten(batches, count);
+
+                while( batches[count - 1].hasRemaining() ) {
+                    this.channel.write(batches, first, count - first);
+                    this.writes++;
+                    first = this.firstUnwritten(batches, count);
+                }
+
+                return true;
+
+            } catch (IOException exception) {
+
+                this.disconnect();
+                this.dropPartialBatch(batches, starts, count, exception);
+
+                if( ! batches[count - 1].hasRemaining() ) {
+                    return true;
+                }
+
+                if( ! wasConnected ) {
+                    return false;
+                }
+
+            }
+
+        }
+
+    }
+
+    private int firstUnwritten(ByteBuffer[] batches, int count) {
+
+        int first = 0;
+
+        while( first < count - 1 && ! batches[first].hasRemaining() ) {
+            first++;
+        }
+
+        return first;
+
+    }
+
+    // The receiver of a new connection expects a frame boundary, so the batch the connection died in the
+    // middle of cannot be finished there. Its frames are dropped rather than sent twice.
+    private void dropPartialBatch(ByteBuffer[] batches, int[] starts, int count, IOException exception) {
+
+        for( int i = 0; i < count; i++ ) {
+
+            ByteBuffer batch = batches[i];
+
+            if( batch.hasRemaining() && batch.position() > starts[i] ) {
+                System.err.printf("Dropped %d unsent bytes to %s after a partial write: %s\n", batch.remaining(), this.address, exception);
+                batch.position(batch.limit());
+            }
+
+        }
+
+    }
+
+    private void connect() throws IOException {
+
+        SocketChannel newChannel = SocketChannel.open();
+
+        try {
+            newChannel.socket().setTcpNoDelay(true);
+            newChannel.connect(this.address);
+            this.channel = newChannel;
+        } catch (IOException exception) {
+            try { newChannel.close(); } catch (IOException e) {}
+            throw exception;
+        }
+
+    }
+
+    private void disconnect() {
+
+        try {
+            if( this.channel != null ) {
+                this.channel.close();
+            }
+        } catch (IOException e) {}
+
+        this.channel = null;
+
+    }
+
+    // Flushes whatever is still staged or queued, then stops the writer.
+    public void close() {
+
+        this.flush();
+        this.closing = true;
+
+        synchronized (this) {
+
+            if( this.writer == null ) {
+                return;
+            }
+
+            this.enqueue(END_OF_STREAM);
+
+            try {
+                this.writer.join();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+
+            this.writer = null;
+
+        }
+
+    }
+
+}
@@ -0,0 +1,137 @@
+package maekawa;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+
+/**
+ * Maekawa's optimal quorums: the lines of the projective plane of order q, for N = q^2 + q + 1 nodes.
+ * Every quorum has q + 1 ~ sqrt(N) members and two quorums share exactly one node. Nodes are the points
+ * of the plane, and every node gets one of the lines through it so that no line is used twice.
+ * Only prime orders are built, which covers 7, 13, 31, 57, 133, 183, 307, ... nodes.
+ */
+public class ProjectivePlaneQuorums implements QuorumGenerator {
+
+    @Override
+    public ArrayList<HashSet<Integer>> generate(int totalNodes) {
+
+        int order = orderFor(totalNodes);
+
+        if( order < 0 ) {
+            throw new IllegalArgumentException(String.format("There is no projective plane of prime order with %d points, use grid or cyclic quorums", totalNodes));
+        }
+
+        // 1. Points and lines have the same normalized homogeneous coordinates, a point lies on a line
+        // when their dot product is 0 modulo the order.
+        int[][] points = homogeneousCoordinates(order);
+        int[][] linePoints = new int[totalNodes][order + 1], pointLines = new int[totalNodes][order + 1];
+        int[] lineSizes = new int[totalNodes], pointSizes = new int[totalNodes];
+
+        for( int line = 0; line < totalNodes; line++ ) {
+            for( int point = 0; point < totalNodes; point++ ) {
+                if( (points[line][0] * points[point][0] + points[line][1] * points[point][1] + points[line][2] * points[point][2]) % order == 0 ) {
+                    linePoints[line][lineSizes[line]++] = point;
+                    pointLines[point][pointSizes[point]++] = line;
+                }
+            }
+        }
+
+        // 2. Match every point with a line through it, the incidence graph is regular so a perfect matching exists.
+        int[] lineOfPoint = new int[totalNodes];
+        int[] pointOfLine = new int[totalNodes];
+        Arrays.fill(lineOfPoint, -1);
+        Arrays.fill(pointOfLine, -1);
+
+        for( int point = 0; point < totalNodes; point++ ) {
+            augment(point, pointLines, lineOfPoint, pointOfLine, new boolean[totalNodes]);
+        }
+
+        ArrayList<HashSet<Integer>> quorums = new ArrayList<HashSet<Integer>>(totalNodes);
+
+        for( int point = 0; point < totalNodes; point++ ) {
+
+            HashSet<Integer> quorum = new HashSet<Integer>();
+
+            for( int member : linePoints[lineOfPoint[point]] ) {
+                quorum.add(member);
+            }
+
+            quorums.add(quorum);
+
+        }
+
+        return quorums;
+
+    }
+
+    // The prime q with q^2 + q + 1 = totalNodes, or -1.
+    private static int orderFor(int totalNodes) {
+
+        for( int q = 2; q * q + q + 1 <= totalNodes; q++ ) {
+            if( q * q + q + 1 == totalNodes && isPrime(q) ) {
+                return q;
+            }
+        }
+
+        return -1;
+
+    }
+
+    private static boolean isPrime(int n) {
+
+        for( int d = 2; d * d <= n; d++ ) {
+            if( n % d == 0 ) {
+                return false;
+            }
+        }
+
+        return ( n >= 2 );
+
+    }
+
+    // (1, y, z), (0, 1, z) and (0, 0, 1), one representative for each point.
+    private static int[][] homogeneousCoordinates(int order) {
+
+        int[][] coordinates = new int[order * order + order + 1][];
+        int i = 0;
+
+        for( int y = 0; y < order; y++ ) {
+            for( int z = 0; z < order; z++ ) {
+                coordinates[i++] = new int[] { 1, y, z };
+            }
+        }
+
+        for( int z = 0; z < order; z++ ) {
+            coordinates[i++] = new int[] { 0, 1, z };
+        }
+
+        coordinates[i] = new int[] { 0, 0, 1 };
+
+        return coordinates;
+
+    }
+
+    // Kuhn's augmenting path step of bipartite matching.
+    private static boolean augment(int point, int[][] pointLines, int[] lineOfPoint, int[] pointOfLine, boolean[] visitedLines) {
+
+        for( int line : pointLines[point] ) {
+
+            if( visitedLines[line] ) {
+                continue;
+            }
+
+            visitedLines[line] = true;
+
+            if( pointOfLine[line] < 0 || augment(pointOfLine[line], pointLines, lineOfPoint, pointOfLine, visitedLines) ) {
+                pointOfLine[line] = point;
+                lineOfPoint[point] = line;
+                return true;
+            }
+
+        }
+
+        return false;
+
+    }
+
+}
@@ -0,0 +1,15 @@
+package maekawa;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+
+/**
+ * Builds the quorum of every node of a system, selected by the fifth value of a config file header.
+ * Quorums must intersect pairwise, ConfigFile checks that before any node starts.
+ */
+public interface QuorumGenerator {
+
+    // Quorum of node i at index i, every node is expected to be a member of its own quorum.
+    ArrayList<HashSet<Integer>> generate(int totalNodes);
+
+}
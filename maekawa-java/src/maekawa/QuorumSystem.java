@@ -0,0 +1,16 @@
+package maekawa;
+
+import java.util.Set;
+
+/**
+ * Decides which nodes a request has to ask. Consulted for every acquisition, so systems with more
+ * than one quorum per node can route around members that should be avoided. Implementations do not
+ * change once built, so the nodes running in one JVM can share one.
+ */
+public interface QuorumSystem {
+
+    // A quorum for a request of nodeId without any of the avoided members, or null if there is none.
+    // Any two quorums this returns intersect, whichever node asked and whatever it avoided.
+    Set<Integer> selectQuorum(int nodeId, Set<Integer> avoid);
+
+}
@@ -0,0 +1,28 @@
+package maekawa;
+
+public class Request implements Comparable<Request> {
+
+    private Message requestMessage;
+
+    // Frozen when the REQUEST arrives, see RequestHeap.priority().
+    private long priority;
+
+    public Request(Message requestMessage) {
+        this.requestMessage = requestMessage;
+        this.priority = RequestHeap.priority(requestMessage.getSourceClock().getLogicalClockValue(), requestMessage.getSourceProcessId());
+    }
+
+    public int getProcessId() {
+        return this.requestMessage.getSourceProcessId();
+    }
+
+    public long getPriority() {
+        return this.priority;
+    }
+
+    @Override
+    public int compareTo(Request that) {
+        return ( this.priority < that.priority ) ? -1 : ( ( this.priority == that.priority ) ? 0 : 1 );
+    }
+
+}
@@ -0,0 +1,336 @@
+package maekawa;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.PriorityQueue;
+import java.util.Random;
+
+/**
+ * A binary min-heap of request priorities for one arbiter. A priority packs the request's logical
+ * clock value into the high 32 bits and the requesting node's id into the low 32 bits, so the
+ * natural order of the longs is Maekawa's (timestamp, node id) order. Every node has at most one
+ * queued request, which lets the heap track each node's slot and flags in arrays indexed by node id
+ * for O(1) lookups and O(log n) removal.
+ */
+public class RequestHeap {
+
+    public static final long NONE = -1;
+
+    public static final int SENT_FAILED = 1;
+
+    private long[] heap = new long[16];
+    private int size = 0;
+
+    // Heap slot + 1 of each node's request, 0 when the node has nothing queued.
+    private int[] positions = new int[16];
+    private byte[] flags = new byte[16];
+
+    public static long priority(int logicalClockValue, int processId) {
+        return ( (long) logicalClockValue << 32 ) | ( processId & 0xFFFFFFFFL );
+    }
+
+    public static int processIdOf(long priority) {
+        return (int) priority;
+    }
+
+    public int size() {
+        return this.size;
+    }
+
+    public boolean isEmpty() {
+        return ( this.size == 0 );
+    }
+
+    // Entries in heap order, not priority order.
+    public long get(int index) {
+        return this.heap[index];
+    }
+
+    public long peek() {
+        return ( this.size == 0 ) ? NONE : this.heap[0];
+    }
+
+    public boolean contains(int processId) {
+        return ( processId < this.positions.length && this.positions[processId] != 0 );
+    }
+
+    // Queues the request, replacing any request the node already had queued.
+    public void add(long priority, int entryFlags) {
+
+        int processId = processIdOf(priority);
+
+        this.remove(processId);
+        this.ensureCapacity(processId);
+
+        this.heap[this.size] = priority;
+        this.positions[processId] = this.size + 1;
+        this.flags[processId] = (byte) entryFlags;
+        this.size++;
+
+        this.siftUp(this.size - 1);
+
+    }
+
+    public long poll() {
+
+        if( this.size == 0 ) {
+            return NONE;
+        }
+
+        long head = this.heap[0];
+        this.removeAt(0);
+
+        return head;
+
+    }
+
+    public boolean remove(int processId) {
+
+        if( ! this.contains(processId) ) {
+            return false;
+        }
+
+        this.removeAt(this.positions[processId] - 1);
+
+        return true;
+
+    }
+
+    public int getFlags(int processId) {
+        return this.contains(processId) ? this.flags[processId] : 0;
+    }
+
+    public void setFlag(int processId, int flag) {
+        if( this.contains(processId) ) {
+            this.flags[processId] |= flag;
+        }
+    }
+
+    private void removeAt(int index) {
+
+        int processId = processIdOf(this.heap[index]);
+        this.positions[processId] = 0;
+        this.flags[processId] = 0;
+        this.size--;
+
+        if( index == this.size ) {
+            return;
+        }
+
+        // Move the last entry into the hole and restore the heap order in whichever direction it needs.
+        this.heap[index] = this.heap[this.size];
+        this.positions[processIdOf(this.heap[index])] = index + 1;
+
+        this.siftDown(index);
+        this.siftUp(index);
+
+    }
+
+    private void siftUp(int index) {
+
+        long priority = this.heap[index];
+
+        while( index > 0 ) {
+
+            int parent = (index - 1) >>> 1;
+
+            if( this.heap[parent] <= priority ) {
+                break;
+            }
+
+            this.place(index, this.heap[parent]);
+            index = parent;
+
+        }
+
+        this.place(index, priority);
+
+    }
+
+    private void siftDown(int index) {
+
+        long priority = this.heap[index];
+        int half = this.size >>> 1;
+
+        while( index < half ) {
+
+            int child = 2 * index + 1;
+
+            if( child + 1 < this.size && this.heap[child + 1] < this.heap[child] ) {
+                child++;
+            }
+
+            if( priority <= this.heap[child] ) {
+                break;
+            }
+
+            this.place(index, this.heap[child]);
+            index = child;
+
+        }
+
+        this.place(index, priority);
+
+    }
+
+    private void place(int index, long priority) {
+        this.heap[index] = priority;
+        this.positions[processIdOf(priority)] = index + 1;
+    }
+
+    private void ensureCapacity(int processId) {
+
+        if( this.size == this.heap.length ) {
+            this.heap = Arrays.copyOf(this.heap, this.heap.length * 2);
+        }
+
+        if( processId >= this.positions.length ) {
+            int capacity = Math.max(processId + 1, this.positions.length * 2);
+            this.positions = Arrays.copyOf(this.positions, capacity);
+            this.flags = Arrays.copyOf(this.flags, capacity);
+        }
+
+    }
+
+    // Runs random adds, replacements, polls and removals against a PriorityQueue with the flags kept in a
+    // map, then checks that packed priorities sort like (timestamp, node id). Exits with 1 if any check failed.
+    public static void main(String[] args) {
+
+        Random random = new Random(( args.length > 0 ) ? Long.parseLong(args[0]) : 1);
+        int failures = 0;
+
+        {
+            System.out.println("===BEGIN TEST 1===");
+
+            int operations = 0;
+
+            for( int trial = 0; trial < 2000 && failures == 0; trial++ ) {
+
+                RequestHeap heap = new RequestHeap();
+                PriorityQueue<Long> expected = new PriorityQueue<Long>();
+                HashMap<Integer, Long> queued = new HashMap<Integer, Long>();
+                HashMap<Integer, Integer> expectedFlags = new HashMap<Integer, Integer>();
+                int processes = 1 + random.nextInt(100);
+
+                for( int i = 0; i < 500 && failures == 0; i++, operations++ ) {
+
+                    int processId = random.nextInt(processes);
+                    int operation = random.nextInt(10);
+
+                    if( operation < 4 ) {
+
+                        long priority = priority(random.nextInt(50), processId);
+                        int entryFlags = random.nextInt(2);
+
+                        if( queued.containsKey(processId) ) {
+                            expected.remove(queued.get(processId));
+                        }
+
+                        heap.add(priority, entryFlags);
+                        expected.add(priority);
+                        queued.put(processId, priority);
+                        expectedFlags.put(processId, entryFlags);
+
+                    } else if( operation < 6 ) {
+
+                        long head = heap.poll();
+                        Long expectedHead = expected.poll();
+
+                        if( head != (( expectedHead == null ) ? NONE : expectedHead.longValue()) ) {
+                            System.out.printf("poll() gave %d instead of %d\n", head, expectedHead);
+                            failures++;
+                        }
+
+                        if( expectedHead != null ) {
+                            queued.remove(processIdOf(expectedHead));
+                            expectedFlags.remove(processIdOf(expectedHead));
+                        }
+
+                    } else if( operation < 8 ) {
+
+                        Long removed = queued.remove(processId);
+                        expectedFlags.remove(processId);
+
+                        if( removed != null ) {
+                            expected.remove(removed);
+                        }
+
+                        if( heap.remove(processId) != ( removed != null ) ) {
+                            System.out.printf("remove(%d) disagrees\n", processId);
+                            failures++;
+                        }
+
+                    } else {
+
+                        heap.setFlag(processId, SENT_FAILED);
+
+                        if( queued.containsKey(processId) ) {
+                            expectedFlags.put(processId, expectedFlags.get(processId) | SENT_FAILED);
+                        }
+
+                    }
+
+                    // Same size, same head, same members with the same flags, and every parent below its children.
+                    long expectedPeek = ( expected.isEmpty() ) ? NONE : expected.peek();
+
+                    if( heap.size() != expected.size() || heap.peek() != expectedPeek ) {
+                        System.out.printf("Size %d and head %d instead of %d and %d\n", heap.size(), heap.peek(), expected.size(), expectedPeek);
+                        failures++;
+                    }
+
+                    for( int id = 0; id < processes; id++ ) {
+
+                        int expectedFlag = ( expectedFlags.containsKey(id) ) ? expectedFlags.get(id) : 0;
+
+                        if( heap.contains(id) != queued.containsKey(id) || heap.getFlags(id) != expectedFlag ) {
+                            System.out.printf("Node %d queued %b with flags %d\n", id, heap.contains(id), heap.getFlags(id));
+                            failures++;
+                        }
+
+                    }
+
+                    for( int index = 1; index < heap.size(); index++ ) {
+                        if( heap.get((index - 1) >>> 1) > heap.get(index) ) {
+                            System.out.printf("Heap order broken at %d\n", index);
+                            failures++;
+                        }
+                    }
+
+                }
+
+            }
+
+            System.out.printf("Operations checked: %d, failing (0): %d\n", operations, failures);
+
+            System.out.println("===END TEST 1===");
+        }
+
+        {
+            System.out.println("===BEGIN TEST 2===");
+
+            int mismatches = 0;
+
+            for( int i = 0; i < 1000000; i++ ) {
+
+                int clock = random.nextInt(Integer.MAX_VALUE), otherClock = ( random.nextBoolean() ) ? clock : random.nextInt(Integer.MAX_VALUE);
+                int processId = random.nextInt(Integer.MAX_VALUE), otherProcessId = random.nextInt(Integer.MAX_VALUE);
+
+                boolean lower = ( clock < otherClock ) || ( clock == otherClock && processId < otherProcessId );
+
+                if( ( priority(clock, processId) < priority(otherClock, otherProcessId) ) != lower || processIdOf(priority(clock, processId)) != processId ) {
+                    mismatches++;
+                }
+
+            }
+
+            System.out.printf("Priorities out of (timestamp, node id) order (0): %d\n", mismatches);
+            failures += mismatches;
+
+            System.out.println("===END TEST 2===");
+        }
+
+        System.exit(( failures == 0 ) ? 0 : 1);
+
+    }
+
+}
@@ -0,0 +1,38 @@
+package maekawa;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Set;
+
+/**
+ * One quorum per node, as written in the config file or built by a QuorumGenerator. Every two of
+ * them intersect, so when a node's own quorum has an avoided member it may use another node's.
+ */
+public class StaticQuorumSystem implements QuorumSystem {
+
+    private ArrayList<HashSet<Integer>> quorums;
+
+    public StaticQuorumSystem(ArrayList<HashSet<Integer>> quorums) {
+        this.quorums = quorums;
+    }
+
+    @Override
+    public Set<Integer> selectQuorum(int nodeId, Set<Integer> avoid) {
+
+        // Our own quorum first, then the ones after it, so nodes avoiding the same members spread out.
+        for( int i = 0; i < this.quorums.size(); i++ ) {
+
+            Set<Integer> quorum = this.quorums.get((nodeId + i) % this.quorums.size());
+
+            if( Collections.disjoint(quorum, avoid) ) {
+                return quorum;
+            }
+
+        }
+
+        return null;
+
+    }
+
+}
@@ -0,0 +1,192 @@
+package maekawa;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.util.Iterator;
+import java.util.concurrent.BlockingQueue;
+
+public class TCPServer extends Thread {
+
+    private static final int READ_BUFFER_SIZE = 4096;
+
+    private InetSocketAddress serverAddress;
+    private volatile Selector selector;
+    private ServerSocketChannel serverChannel;
+    private MessageCodec codec;
+    private BlockingQueue<Message> messageQueue;
+    private volatile boolean running = true;
+
+    public TCPServer(InetSocketAddress socketAddress, MessageCodec codec, BlockingQueue<Message> messageQueue) {
+        this.serverAddress = socketAddress;
+        this.codec = codec;
+        this.messageQueue = messageQueue;
+    }
+
+    public void run() {
+
+        try {
+
+            this.selector = Selector.open();
+            this.serverChannel = ServerSocketChannel.open();
+            this.serverChannel.configureBlocking(false);
+            this.serverChannel.bind(this.serverAddress);
+            this.serverChannel.register(this.selector, SelectionKey.OP_ACCEPT);
+
+            // All peers are served from this one thread, a channel is only touched when the selector says it is ready.
+            while( this.running ) {
+
+                this.selector.select();
+
+                Iterator<SelectionKey> keyIterator = this.selector.selectedKeys().iterator();
+
+                while( keyIterator.hasNext() ) {
+
+                    SelectionKey key = keyIterator.next();
+                    keyIterator.remove();
+
+                    if( ! key.isValid() ) {
+                        continue;
+                    }
+
+                    if( key.isAcceptable() ) {
+                        this.accept();
+                    } else if( key.isReadable() ) {
+                        this.read(key);
+                    }
+
+                }
+
+            }
+
+        } catch (IOException exception) {
+            return;
+        } finally {
+            this.closeChannels();
+        }
+
+    }
+
+    private void accept() throws IOException {
+
+        SocketChannel channel = this.serverChannel.accept();
+
+        if( channel == null ) {
+            return;
+        }
+
+        channel.configureBlocking(false);
+        channel.socket().setTcpNoDelay(true);
+        channel.register(this.selector, SelectionKey.OP_READ, ByteBuffer.allocate(READ_BUFFER_SIZE));
+
+    }
+
+    private void read(SelectionKey key) {
+
+        SocketChannel channel = (SocketChannel) key.channel();
+        ByteBuffer buffer = (ByteBuffer) key.attachment();
+        int bytesRead;
+
+        try {
+            bytesRead = channel.read(buffer);
+        } catch (IOException exception) {
+            bytesRead = -1;
+        }
+
+        // 1. Decode every complete frame that is now in the buffer and hand it to the coordinator. Past a frame
+        // we cannot delimit the rest of the stream is misaligned, so we hang up and the peer reconnects.
+        buffer.flip();
+
+        if( ! this.drainFrames(buffer) ) {
+            key.cancel();
+            try { channel.close(); } catch (IOException e) {}
+            return;
+        }
+
+        buffer.compact();
+
+        // 2. A frame that fills the whole buffer needs more room before we can finish reading it, up to the
+        // largest frame a codec may send. Anything longer cannot be delimited either, so we hang up as above.
+        if( ! buffer.hasRemaining() && buffer.capacity() >= MessageCodec.MAX_FRAME_SIZE ) {
+            key.cancel();
+            try { channel.close(); } catch (IOException e) {}
+            return;
+        }
+
+        if( ! buffer.hasRemaining() ) {
+            ByteBuffer biggerBuffer = ByteBuffer.allocate(Math.min(buffer.capacity() * 2, MessageCodec.MAX_FRAME_SIZE));
+            buffer.flip();
+            biggerBuffer.put(buffer);
+            key.attach(biggerBuffer);
+        }
+
+        // 3. The peer hung up (one-shot clients do this after every message).
+        if( bytesRead == -1 ) {
+            key.cancel();
+            try { channel.close(); } catch (IOException e) {}
+        }
+
+    }
+
+    // Returns false if the stream holds a frame whose boundary cannot be found.
+    private boolean drainFrames(ByteBuffer buffer) {
+
+        while( true ) {
+
+            int frameStart = buffer.position();
+            Message incomingMessage;
+
+            try {
+                incomingMessage = this.codec.decode(buffer);
+            } catch (RuntimeException exception) {
+                return false;
+            }
+
+            if( incomingMessage != null ) {
+                this.messageQueue.offer(incomingMessage);
+            } else if( buffer.position() == frameStart ) {
+                return true;
+            }
+
+        }
+
+    }
+
+    private void closeChannels() {
+
+        this.running = false;
+
+        if( this.selector != null ) {
+            for( SelectionKey key : this.selector.keys() ) {
+                try { key.channel().close(); } catch (IOException e) {}
+            }
+        }
+
+        try {
+            this.serverChannel.close();
+        } catch (Exception e) { }
+
+        try {
+            this.selector.close();
+        } catch (Exception e) { }
+
+    }
+
+    public void closeSocket() {
+
+        this.running = false;
+
+        // The selector thread closes everything itself once it wakes up and sees that we are no longer running.
+        Selector currentSelector = this.selector;
+
+        if( currentSelector != null ) {
+            currentSelector.wakeup();
+        }
+
+    }
+
+}
@@ -0,0 +1,100 @@
+package maekawa;
+
+import java.nio.ByteBuffer;
+import java.util.Collection;
+import java.util.concurrent.BlockingQueue;
+
+public class TcpTransport implements Transport {
+
+    private MessageCodec codec;
+    private TCPServer tcpServer;
+    private ConnectionPool connectionPool;
+
+    public TcpTransport(MessageCodec codec) {
+        this.codec = codec;
+    }
+
+    @Override
+    public void open(NodeContext context, BlockingQueue<Message> incomingMessages) {
+        this.tcpServer = new TCPServer(context.nodeAddresses.get(context.nodeId), this.codec, incomingMessages);
+        this.connectionPool = new ConnectionPool(context.nodeAddresses);
+    }
+
+    @Override
+    public void start() {
+        this.tcpServer.start();
+        this.connectionPool.startAll();
+    }
+
+    @Override
+    public void send(int processId, Message message) {
+        this.write(processId, this.encode(message));
+    }
+
+    @Override
+    public void send(Collection<Integer> processIds, Message message) {
+
+        // Encode once, every member gets the same frame. This only queues the frame for each member's
+        // writer, so one slow member no longer holds up the others.
+        ByteBuffer frame = this.encode(message);
+
+        for( Integer processId : processIds ) {
+            this.write(processId, frame.duplicate());
+        }
+
+    }
+
+    @Override
+    public void flush() {
+        this.connectionPool.flushAll();
+    }
+
+    private ByteBuffer encode(Message message) {
+
+        ByteBuffer frame = ByteBuffer.allocate(this.codec.maxEncodedSize(message));
+        this.codec.encode(message, frame);
+        frame.flip();
+
+        return frame;
+
+    }
+
+    private void write(int processId, ByteBuffer frame) {
+
+        PeerConnection connection = this.connectionPool.get(processId);
+
+        if( connection != null ) {
+            connection.send(frame);
+        }
+
+    }
+
+    @Override
+    public String toString() {
+
+        long messages = 0, batches = 0, largestBatch = 0, writes = 0;
+
+        for( PeerConnection connection : this.connectionPool.getAll() ) {
+            messages += connection.getMessagesFlushed();
+            batches += connection.getBatchesFlushed();
+            largestBatch = Math.max(largestBatch, connection.getLargestBatch());
+            writes += connection.getWrites();
+        }
+
+        return String.format("Sent %d messages in %d batches (%.2f per batch, largest %d) with %d writes", messages, batches, ( batches == 0 ) ? 0.0 : (double) messages / batches, largestBatch, writes);
+
+    }
+
+    @Override
+    public void close() {
+
+        try {
+            this.tcpServer.closeSocket();
+            this.tcpServer.join();
+        } catch (Exception e) { }
+
+        this.connectionPool.closeAll();
+
+    }
+
+}
@@ -0,0 +1,83 @@
+package maekawa;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.Charset;
+
+/**
+ * The original human readable NAME(args, ...) format, one message per line. Only meant for debugging
+ * since every message is formatted and parsed through Strings.
+ */
+public class TextMessageCodec implements MessageCodec {
+
+    private static final Charset UTF8 = Charset.forName("utf-8");
+
+    @Override
+    public int maxEncodedSize(Message message) {
+        return message.toString().getBytes(UTF8).length + 1;
+    }
+
+    // The lock name is one of the comma separated arguments, a separator or a parenthesis in it would
+    // change how the message parses and whitespace would be trimmed away.
+    @Override
+    public boolean accepts(String lockKey) {
+
+        for( int i = 0; i < lockKey.length(); i++ ) {
+
+            char c = lockKey.charAt(i);
+
+            if( c == ',' || c == '(' || c == ')' || Character.isWhitespace(c) ) {
+                return false;
+            }
+
+        }
+
+        return true;
+
+    }
+
+    @Override
+    public void encode(Message message, ByteBuffer buffer) {
+        buffer.put(message.toString().getBytes(UTF8));
+        buffer.put((byte) '\n');
+    }
+
+    @Override
+    public Message decode(ByteBuffer buffer) {
+
+        while( true ) {
+
+            int lineStart = buffer.position();
+            int lineEnd = -1;
+
+            for( int i = lineStart; i < buffer.limit(); i++ ) {
+                if( buffer.get(i) == '\n' ) {
+                    lineEnd = i;
+                    break;
+                }
+            }
+
+            if( lineEnd == -1 ) {
+                return null;
+            }
+
+            byte[] line = new byte[lineEnd - lineStart];
+            buffer.get(line);
+            buffer.get(); // The line terminator.
+
+            String rawMessage = new String(line, UTF8).trim();
+
+            // Skip blank lines rather than reporting them as an unknown message. A line that does not parse is
+            // consumed like an unknown message, the next one starts after its terminator either way.
+            if( rawMessage.length() > 0 ) {
+                try {
+                    return Message.parse(rawMessage);
+                } catch (RuntimeException exception) {
+                    return null;
+                }
+            }
+
+        }
+
+    }
+
+}
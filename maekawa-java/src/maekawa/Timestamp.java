@@ -0,0 +1,12 @@
+package maekawa;
+
+// What travels with a message: enough to prioritize the request it belongs to. Only a LogicalClock
+// can be ticked or merged, a received timestamp is merged into the receiver's clock.
+public interface Timestamp {
+
+    int getOwnerProcessId();
+
+    // The scalar value requests are prioritized by, ties are broken by the owner's process id.
+    int getLogicalClockValue();
+
+}
@@ -0,0 +1,23 @@
+package maekawa;
+
+import java.util.Collection;
+import java.util.concurrent.BlockingQueue;
+
+public interface Transport {
+
+    // Called once the node's topology is known, messages addressed to the node go to incomingMessages.
+    void open(NodeContext context, BlockingQueue<Message> incomingMessages);
+
+    void start();
+
+    // Must only queue the message and never block, Message sends under the context lock.
+    void send(int processId, Message message);
+
+    void send(Collection<Integer> processIds, Message message);
+
+    // Sends may be held back and batched per destination until the sending thread calls flush().
+    void flush();
+
+    void close();
+
+}
@@ -0,0 +1,86 @@
+package maekawa;
+
+import java.util.HashSet;
+import java.util.Set;
+
+/**
+ * Agrawal and El Abbadi's tree quorums. Nodes form a binary tree in heap order (the children of i
+ * are 2i + 1 and 2i + 2) and a quorum is a path from the root down to a leaf, log N + 1 members at
+ * best. A node that must be avoided is replaced by two paths, one from each of its children, so the
+ * quorums grow towards N / 2 + 1 as more of the tree is avoided. Any two quorums built this way
+ * intersect: either both contain the root, or both contain a quorum of the same subtree.
+ */
+public class TreeQuorumSystem implements QuorumSystem {
+
+    private int totalNodes;
+
+    public TreeQuorumSystem(int totalNodes) {
+        this.totalNodes = totalNodes;
+    }
+
+    @Override
+    public Set<Integer> selectQuorum(int nodeId, Set<Integer> avoid) {
+        return this.quorumOf(0, 0, nodeId, avoid);
+    }
+
+    private Set<Integer> quorumOf(int root, int depth, int nodeId, Set<Integer> avoid) {
+
+        // A missing subtree has no quorum.
+        if( root >= this.totalNodes ) {
+            return null;
+        }
+
+        int left = 2 * root + 1, right = 2 * root + 2;
+
+        // 1. An avoided node needs a quorum of both of its subtrees instead.
+        if( avoid.contains(root) ) {
+
+            Set<Integer> leftQuorum = this.quorumOf(left, depth + 1, nodeId, avoid);
+            Set<Integer> rightQuorum = ( leftQuorum == null ) ? null : this.quorumOf(right, depth + 1, nodeId, avoid);
+
+            if( rightQuorum == null ) {
+                return null;
+            }
+
+            leftQuorum.addAll(rightQuorum);
+
+            return leftQuorum;
+
+        }
+
+        // 2. Otherwise the node itself plus a quorum of one subtree, a leaf on its own.
+        if( left >= this.totalNodes ) {
+            HashSet<Integer> quorum = new HashSet<Integer>();
+            quorum.add(root);
+            return quorum;
+        }
+
+        // Go down towards the requesting node so it arbitrates its own request, elsewhere alternate between
+        // nodes to spread the load over the leaves.
+        boolean leftFirst = this.inSubtree(nodeId, left) || ( ! this.inSubtree(nodeId, right) && ((nodeId >> depth) & 1) == 0 );
+
+        Set<Integer> quorum = this.quorumOf(leftFirst ? left : right, depth + 1, nodeId, avoid);
+
+        if( quorum == null ) {
+            quorum = this.quorumOf(leftFirst ? right : left, depth + 1, nodeId, avoid);
+        }
+
+        if( quorum != null ) {
+            quorum.add(root);
+        }
+
+        return quorum;
+
+    }
+
+    private boolean inSubtree(int nodeId, int root) {
+
+        while( nodeId > root ) {
+            nodeId = (nodeId - 1) / 2;
+        }
+
+        return ( nodeId == root );
+
+    }
+
+}
@@ -0,0 +1,142 @@
+package maekawa;
+
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.util.Random;
+
+public class Varint {
+
+    // Writes an unsigned LEB128 varint, small values such as node ids and clock entries take a single byte.
+    public static void write(ByteBuffer buffer, int value) {
+
+        while( (value & ~0x7F) != 0 ) {
+            buffer.put((byte) ((value & 0x7F) | 0x80));
+            value >>>= 7;
+        }
+
+        buffer.put((byte) value);
+
+    }
+
+    public static int read(ByteBuffer buffer) {
+
+        int value = 0;
+
+        for( int shift = 0; shift < 32; shift += 7 ) {
+
+            if( ! buffer.hasRemaining() ) {
+                throw new BufferUnderflowException();
+            }
+
+            byte b = buffer.get();
+            value |= (b & 0x7F) << shift;
+
+            if( (b & 0x80) == 0 ) {
+                return value;
+            }
+
+        }
+
+        throw new IllegalArgumentException("Malformed varint");
+
+    }
+
+    // Zig-zag encoding keeps small negative values (e.g. the -1 source of DEBUG and FINISHED) to one byte.
+    public static void writeSigned(ByteBuffer buffer, int value) {
+        write(buffer, (value << 1) ^ (value >> 31));
+    }
+
+    public static int readSigned(ByteBuffer buffer) {
+        int value = read(buffer);
+        return (value >>> 1) ^ -(value & 1);
+    }
+
+    public static int size(int value) {
+
+        int size = 1;
+
+        while( (value & ~0x7F) != 0 ) {
+            value >>>= 7;
+            size++;
+        }
+
+        return size;
+
+    }
+
+    // Writes and reads back random values of every byte length, signed and unsigned, checking size() against
+    // the bytes actually written. Exits with 1 if any check failed.
+    public static void main(String[] args) {
+
+        Random random = new Random(( args.length > 0 ) ? Long.parseLong(args[0]) : 1);
+        ByteBuffer buffer = ByteBuffer.allocate(5);
+        int failures = 0;
+
+        {
+            System.out.println("===BEGIN TEST 1===");
+
+            int[] edges = { 0, 1, 0x7F, 0x80, 0x3FFF, 0x4000, 0x1FFFFF, 0x200000, 0xFFFFFFF, 0x10000000, Integer.MAX_VALUE, -1, Integer.MIN_VALUE };
+
+            for( int i = 0; i < 1000000 + edges.length; i++ ) {
+
+                // Random values spread evenly over the bit lengths, so every varint size is exercised.
+                int value = ( i < edges.length ) ? edges[i] : random.nextInt() >>> random.nextInt(32);
+
+                buffer.clear();
+                write(buffer, value);
+                int written = buffer.position();
+                buffer.flip();
+
+                if( read(buffer) != value || written != size(value) || buffer.hasRemaining() ) {
+                    System.out.printf("Unsigned round trip failed for %d\n", value);
+                    failures++;
+                }
+
+                buffer.clear();
+                writeSigned(buffer, value);
+                buffer.flip();
+
+                if( readSigned(buffer) != value ) {
+                    System.out.printf("Signed round trip failed for %d\n", value);
+                    failures++;
+                }
+
+            }
+
+            System.out.printf("Round trips failing (0): %d\n", failures);
+
+            System.out.println("===END TEST 1===");
+        }
+
+        {
+            System.out.println("===BEGIN TEST 2===");
+
+            buffer.clear();
+            writeSigned(buffer, -1);
+            System.out.printf("Bytes for -1 zig-zag (1): %d\n", buffer.position());
+            failures += ( buffer.position() == 1 ) ? 0 : 1;
+
+            buffer.clear();
+            write(buffer, 300);
+            buffer.flip();
+            buffer.limit(1);
+
+            boolean underflow = false;
+
+            try {
+                read(buffer);
+            } catch (BufferUnderflowException e) {
+                underflow = true;
+            }
+
+            System.out.printf("Cut varint underflows (true): %b\n", underflow);
+            failures += underflow ? 0 : 1;
+
+            System.out.println("===END TEST 2===");
+        }
+
+        System.exit(( failures == 0 ) ? 0 : 1);
+
+    }
+
+}
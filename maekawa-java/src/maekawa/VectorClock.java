@@ -1,10 +1,17 @@
+package maekawa;
+
 import java.util.Arrays;
 
-public class VectorClock {
+public class VectorClock implements LogicalClock {
 
     private int[] vector;
     private int ownerProcessId;
 
+    // Singhal-Kshemkalyani bookkeeping, only kept once differential timestamps are enabled:
+    // lastSent[j] is our own entry when we last sent to j, lastUpdate[k] our own entry when vector[k] last changed.
+    private int[] lastSent = null;
+    private int[] lastUpdate = null;
+
     public VectorClock(int numProcesses, int ownerProcessId) {
         this.ownerProcessId = ownerProcessId;
         this.vector = new int[numProcesses];
@@ -33,25 +40,130 @@ public class VectorClock {
 
     }
 
+    // Takes ownership of the array instead of copying it, used by the wire codecs.
+    public static VectorClock wrap(int[] aVector, int ownerProcessId) {
+        VectorClock vectorClock = new VectorClock(new int[0], ownerProcessId);
+        vectorClock.vector = aVector;
+        return vectorClock;
+    }
+
+    @Override
     public int getOwnerProcessId() {
         return this.ownerProcessId;
     }
 
+    public int size() {
+        return this.vector.length;
+    }
+
+    public int getValue(int processId) {
+        return this.vector[processId];
+    }
+
     public String getTimestampForMessage() {
+        return this.tickForMessage().toString();
+    }
+
+    public void enableDifferentialTimestamps() {
+        this.lastSent = new int[this.vector.length];
+        this.lastUpdate = new int[this.vector.length];
+        this.lastUpdate[this.ownerProcessId] = this.vector[this.ownerProcessId];
+    }
+
+    public boolean isDifferential() {
+        return ( this.lastSent != null );
+    }
+
+    @Override
+    public VectorClock tickForMessage() {
+
         this.vector[this.ownerProcessId]++;
-        return this.toString();
+
+        if( this.isDifferential() ) {
+            this.lastUpdate[this.ownerProcessId] = this.vector[this.ownerProcessId];
+        }
+
+        return new VectorClock(this.vector, this.ownerProcessId);
+
+    }
+
+    // The entries that changed since our last message to the destination, to be called after tickForMessage().
+    public DifferentialTimestamp timestampFor(int destinationProcessId) {
+
+        int lastSentToDestination = this.lastSent[destinationProcessId];
+        int changedEntries = 0;
+
+        for( int i = 0; i < this.vector.length; i++ ) {
+            if( this.lastUpdate[i] > lastSentToDestination ) {
+                changedEntries++;
+            }
+        }
+
+        int[] processIds = new int[changedEntries];
+        int[] values = new int[changedEntries];
+
+        for( int i = 0, entry = 0; i < this.vector.length; i++ ) {
+            if( this.lastUpdate[i] > lastSentToDestination ) {
+                processIds[entry] = i;
+                values[entry] = this.vector[i];
+                entry++;
+            }
+        }
+
+        this.lastSent[destinationProcessId] = this.vector[this.ownerProcessId];
+
+        return new DifferentialTimestamp(this.ownerProcessId, this.getLogicalClockValue(), processIds, values);
+
     }
 
     public void receivedTimestamp(String vectorClockData) {
         this.receivedTimestamp(new VectorClock(vectorClockData));
     }
 
-    public void receivedTimestamp(VectorClock otherVectorClock) {
+    @Override
+    public void receivedTimestamp(Timestamp otherClock) {
+
+        if( otherClock instanceof DifferentialTimestamp ) {
+            this.receivedTimestamp((DifferentialTimestamp) otherClock);
+            return;
+        }
+
+        VectorClock otherVectorClock = (VectorClock) otherClock;
+
+        this.vector[this.ownerProcessId]++;
 
         for( int i = 0; i < this.vector.length; i++ ) {
-            this.vector[i] = Math.max(this.vector[i], otherVectorClock.vector[i]);
+            if( otherVectorClock.vector[i] > this.vector[i] ) {
+                this.vector[i] = otherVectorClock.vector[i];
+                this.markUpdated(i);
+            }
         }
+
+        this.markUpdated(this.ownerProcessId);
+
+    }
+
+    // Only the entries carried by the message are merged, so the cost follows activity rather than cluster size.
+    public void receivedTimestamp(DifferentialTimestamp timestamp) {
+
         this.vector[this.ownerProcessId]++;
+
+        for( int i = 0; i < timestamp.size(); i++ ) {
+            int processId = timestamp.getProcessId(i);
+            if( timestamp.getValue(i) > this.vector[processId] ) {
+                this.vector[processId] = timestamp.getValue(i);
+                this.markUpdated(processId);
+            }
+        }
+
+        this.markUpdated(this.ownerProcessId);
+
+    }
+
+    private void markUpdated(int processId) {
+        if( this.isDifferential() ) {
+            this.lastUpdate[processId] = this.vector[this.ownerProcessId];
+        }
     }
 
     public boolean happenedBefore(VectorClock that) {
@@ -81,6 +193,7 @@ public class VectorClock {
 
     }
 
+    @Override
     public int getLogicalClockValue() {
 
         int sum = 0;
@@ -123,6 +236,11 @@ public class VectorClock {
 
     }
 
+    @Override
+    public int hashCode() {
+        return 31 * this.ownerProcessId + Arrays.hashCode(this.vector);
+    }
+
     public static void main(String[] args) {
 
         {
@@ -0,0 +1,91 @@
+package maekawa;
+
+import java.io.*;
+import java.util.*;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+public class VerificationHandler implements Runnable {
+
+    private int expectedRequests = 0; // The expected number of requests to be made by the whole system. e.g. 5 reqs * 5 nodes = 25 reqs
+    private int completedRequests = 0; // The number of requests have have been completed by all nodes so far.
+
+    // Wall clock from the start of Node(0) to the last record, for the throughput in the summary.
+    private long startTime = System.nanoTime();
+    private long lastRecordTime = this.startTime;
+
+    private NodeContext context;
+
+    public BlockingQueue<int[]> incomingLogMessages = new LinkedBlockingQueue<int[]>();
+
+    private VerificationRecords records = new VerificationRecords();
+    private ConflictChecker conflictChecker;
+
+    public VerificationHandler(NodeContext context, int expectedRequests) {
+        this.context = context;
+        this.expectedRequests = expectedRequests;
+        this.conflictChecker = new ConflictChecker(this.records, context.nodeAddresses.size(), expectedRequests / Math.max(1, context.nodeAddresses.size()));
+    }
+
+    // How many records overlapped another one so far.
+    public int getConflicts() {
+        return this.conflictChecker.getConflicts();
+    }
+
+    private void checkRecord(int index) {
+
+        // Fail fast, a soak run shows the violation the moment its record arrives.
+        int conflict = this.conflictChecker.check(index);
+
+        if( conflict != -1 ) {
+            System.err.printf("Mutual exclusion violated: %s overlaps %s\n", this.records.describe(index), this.records.describe(conflict));
+        }
+
+    }
+
+    private void writeReport() {
+
+        double elapsedSeconds = (this.lastRecordTime - this.startTime) / 1e9;
+
+        try {
+            new VerificationReport(this.records, this.expectedRequests, elapsedSeconds).write();
+        } catch (IOException e) {
+            System.err.printf("Failed to write the verification report: %s\n", e);
+        }
+
+    }
+
+    @Override
+    public void run() {
+
+        // 1. Wait to receive all requests from all nodes and we have no more requests.
+        while ( this.completedRequests < this.expectedRequests ) {
+            try {
+
+                int[] logMessage = this.incomingLogMessages.poll(5, TimeUnit.SECONDS);
+
+                if( logMessage == null ) {
+                    continue;
+                }
+
+                int index = this.records.add(logMessage);
+
+                this.checkRecord(index);
+
+                this.lastRecordTime = System.nanoTime();
+                this.completedRequests++;
+
+            } catch (InterruptedException e) {}
+        }
+
+        // 2. Every record was checked as it arrived, only the report is left.
+        this.writeReport();
+
+        // 3. Send done messages to all nodes.
+        this.context.transport.send(this.context.nodeAddresses.keySet(), new Message(Message.Type.FINISHED, -1, null));
+        this.context.transport.flush();
+
+    }
+
+}
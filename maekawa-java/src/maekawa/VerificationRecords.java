@@ -0,0 +1,277 @@
+package maekawa;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.Random;
+
+/**
+ * Every CS execution reported to the verification, column by column: node id, request id, start
+ * and end time in growable int arrays, 16 bytes per record instead of an object each. Records are
+ * referred to by their index in arrival order. Conflicts are rare and kept on the side.
+ */
+public class VerificationRecords {
+
+    private static final int INITIAL_CAPACITY = 1024;
+
+    private int[] nodeIds = new int[INITIAL_CAPACITY];
+    private int[] requestIds = new int[INITIAL_CAPACITY];
+    private int[] startTimes = new int[INITIAL_CAPACITY];
+    private int[] endTimes = new int[INITIAL_CAPACITY];
+    private int size = 0;
+
+    // Record index to the index of the first record it was found to overlap.
+    private HashMap<Integer, Integer> conflicts = new HashMap<Integer, Integer>();
+
+    public VerificationRecords() {
+    }
+
+    // Room for exactly size records, to be filled in with set(), possibly from several threads.
+    public VerificationRecords(int size) {
+        this.nodeIds = new int[size];
+        this.requestIds = new int[size];
+        this.startTimes = new int[size];
+        this.endTimes = new int[size];
+        this.size = size;
+    }
+
+    public void set(int index, int nodeId, int requestId, int startTime, int endTime) {
+        this.nodeIds[index] = nodeId;
+        this.requestIds[index] = requestId;
+        this.startTimes[index] = startTime;
+        this.endTimes[index] = endTime;
+    }
+
+    // Takes a DEBUG payload: node id, request id, start time, end time. Returns the index of the record.
+    public int add(int[] rawData) {
+
+        if( this.size == this.nodeIds.length ) {
+            int capacity = Math.max(INITIAL_CAPACITY, 2 * this.size);
+            this.nodeIds = Arrays.copyOf(this.nodeIds, capacity);
+            this.requestIds = Arrays.copyOf(this.requestIds, capacity);
+            this.startTimes = Arrays.copyOf(this.startTimes, capacity);
+            this.endTimes = Arrays.copyOf(this.endTimes, capacity);
+        }
+
+        this.nodeIds[this.size] = rawData[0];
+        this.requestIds[this.size] = rawData[1];
+        this.startTimes[this.size] = rawData[2];
+        this.endTimes[this.size] = rawData[3];
+
+        return this.size++;
+
+    }
+
+    public int size() {
+        return this.size;
+    }
+
+    public int getNodeId(int index) {
+        return this.nodeIds[index];
+    }
+
+    public int getRequestId(int index) {
+        return this.requestIds[index];
+    }
+
+    public int getStartTime(int index) {
+        return this.startTimes[index];
+    }
+
+    public int getEndTime(int index) {
+        return this.endTimes[index];
+    }
+
+    public String describe(int index) {
+        return String.format("R(%d) @ Node(%d) [%d, %d]", this.requestIds[index], this.nodeIds[index], this.startTimes[index], this.endTimes[index]);
+    }
+
+    // Whether either execution has a start or end strictly inside the other.
+    public boolean overlap(int index, int otherIndex) {
+        return inRange(this.startTimes[otherIndex], index) || inRange(this.endTimes[otherIndex], index)
+            || inRange(this.startTimes[index], otherIndex) || inRange(this.endTimes[index], otherIndex);
+    }
+
+    private boolean inRange(int time, int index) {
+        return ( time > this.startTimes[index] && time < this.endTimes[index] );
+    }
+
+    // Only the first conflict of a record is kept.
+    public void markConflict(int index, int otherIndex) {
+        if( ! this.conflicts.containsKey(index) ) {
+            this.conflicts.put(index, otherIndex);
+        }
+    }
+
+    public boolean isConflicting(int index) {
+        return this.conflicts.containsKey(index);
+    }
+
+    // The index of the record it overlaps, -1 if there is none.
+    public int getConflict(int index) {
+        Integer otherIndex = this.conflicts.get(index);
+        return ( otherIndex == null ) ? -1 : otherIndex;
+    }
+
+    public int getConflictCount() {
+        return this.conflicts.size();
+    }
+
+    // Record indexes grouped by node, each node's in request order. A node sends its records in order,
+    // so sorting (node id, arrival index) pairs packed in a long is enough.
+    public int[] orderByNode() {
+
+        long[] keys = new long[this.size];
+
+        for( int i = 0; i < this.size; i++ ) {
+            keys[i] = ((long) this.nodeIds[i] << 32) | i;
+        }
+
+        Arrays.sort(keys);
+
+        int[] order = new int[this.size];
+
+        for( int i = 0; i < this.size; i++ ) {
+            order[i] = (int) keys[i];
+        }
+
+        return order;
+
+    }
+
+    // Stores random DEBUG payloads well past the initial capacity and reads them back column by column,
+    // then checks overlap(), orderByNode() and the conflict bookkeeping against the payloads themselves.
+    // Exits with 1 if any check failed.
+    public static void main(String[] args) {
+
+        Random random = new Random(( args.length > 0 ) ? Long.parseLong(args[0]) : 1);
+        int failures = 0;
+
+        System.out.println("===BEGIN TEST 1===");
+
+        for( int trial = 0; trial < 20; trial++ ) {
+
+            int nodeCount = 1 + random.nextInt(40);
+            final ArrayList<int[]> payloads = new ArrayList<int[]>();
+            int[] requestIds = new int[nodeCount];
+            int count = 1 + random.nextInt(10 * INITIAL_CAPACITY);
+
+            for( int i = 0; i < count; i++ ) {
+                int nodeId = random.nextInt(nodeCount);
+                int startTime = random.nextInt(1000);
+                payloads.add(new int[] { nodeId, ++requestIds[nodeId], startTime, startTime + random.nextInt(20) });
+            }
+
+            VerificationRecords records = new VerificationRecords();
+            VerificationRecords presized = new VerificationRecords(payloads.size());
+
+            for( int i = 0; i < payloads.size(); i++ ) {
+
+                int[] payload = payloads.get(i);
+
+                if( records.add(payload) != i ) {
+                    System.out.printf("Record %d got another index\n", i);
+                    failures++;
+                }
+
+                presized.set(i, payload[0], payload[1], payload[2], payload[3]);
+
+            }
+
+            // 1. Every column reads back what was stored, from either constructor.
+            for( int i = 0; i < payloads.size(); i++ ) {
+
+                int[] payload = payloads.get(i);
+
+                for( VerificationRecords stored : new VerificationRecords[] { records, presized } ) {
+                    if( stored.getNodeId(i) != payload[0] || stored.getRequestId(i) != payload[1] || stored.getStartTime(i) != payload[2] || stored.getEndTime(i) != payload[3] ) {
+                        System.out.printf("Record %d reads back as %s\n", i, stored.describe(i));
+                        failures++;
+                    }
+                }
+
+            }
+
+            // 2. Two executions overlap when an end point of one lies strictly inside the other, either way round.
+            for( int k = 0; k < 10000; k++ ) {
+
+                int i = random.nextInt(payloads.size()), j = random.nextInt(payloads.size());
+                int[] a = payloads.get(i), b = payloads.get(j);
+
+                boolean expected = ( a[2] < b[2] && b[2] < a[3] ) || ( a[2] < b[3] && b[3] < a[3] )
+                    || ( b[2] < a[2] && a[2] < b[3] ) || ( b[2] < a[3] && a[3] < b[3] );
+
+                if( records.overlap(i, j) != expected || records.overlap(j, i) != expected ) {
+                    System.out.printf("overlap(%s, %s) is not %b\n", records.describe(i), records.describe(j), expected);
+                    failures++;
+                }
+
+            }
+
+            // 3. Grouped by node, each node's records in arrival order, which is request order.
+            ArrayList<Integer> expectedOrder = new ArrayList<Integer>();
+
+            for( int i = 0; i < payloads.size(); i++ ) {
+                expectedOrder.add(i);
+            }
+
+            Collections.sort(expectedOrder, new Comparator<Integer>() {
+                @Override
+                public int compare(Integer index, Integer otherIndex) {
+                    return Integer.compare(payloads.get(index)[0], payloads.get(otherIndex)[0]);
+                }
+            });
+
+            int[] order = records.orderByNode();
+
+            for( int i = 0; i < order.length; i++ ) {
+                if( order[i] != expectedOrder.get(i) ) {
+                    System.out.printf("orderByNode()[%d] is %d instead of %d\n", i, order[i], expectedOrder.get(i));
+                    failures++;
+                    break;
+                }
+            }
+
+            // 4. Only the first conflict of a record is kept.
+            HashMap<Integer, Integer> firstConflicts = new HashMap<Integer, Integer>();
+
+            for( int k = 0; k < 100; k++ ) {
+
+                int i = random.nextInt(payloads.size()), j = random.nextInt(payloads.size());
+                records.markConflict(i, j);
+
+                if( ! firstConflicts.containsKey(i) ) {
+                    firstConflicts.put(i, j);
+                }
+
+            }
+
+            for( int i = 0; i < payloads.size(); i++ ) {
+
+                int expectedConflict = ( firstConflicts.containsKey(i) ) ? firstConflicts.get(i) : -1;
+
+                if( records.getConflict(i) != expectedConflict || records.isConflicting(i) != ( expectedConflict != -1 ) ) {
+                    System.out.printf("Record %d conflicts with %d instead of %d\n", i, records.getConflict(i), expectedConflict);
+                    failures++;
+                }
+
+            }
+
+            if( records.getConflictCount() != firstConflicts.size() ) {
+                System.out.printf("%d conflicts counted instead of %d\n", records.getConflictCount(), firstConflicts.size());
+                failures++;
+            }
+
+        }
+
+        System.out.printf("Failing checks (0): %d\n", failures);
+
+        System.out.println("===END TEST 1===");
+
+        System.exit(( failures == 0 ) ? 0 : 1);
+
+    }
+
+}
@@ -0,0 +1,224 @@
+package maekawa;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.Writer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Writes the verification results as they are produced instead of building them in memory: the
+ * table of CS executions as HTML pages of at most MAX_CELLS_PER_PAGE cells, one row per request,
+ * one column per node, and a summary with the totals and per node counts as CSV and JSON.
+ *
+ *   verification-table.html, verification-table-2.html, ...
+ *   verification-summary.csv, verification-summary.json
+ */
+public class VerificationReport {
+
+    private static final int MAX_CELLS_PER_PAGE = 50000;
+    private static final int BUFFER_SIZE = 64 * 1024;
+
+    private VerificationRecords records;
+    private int expectedRequests;
+    private double elapsedSeconds;
+
+    // Record indexes grouped by node, and where the records of the i-th node start in them.
+    private int[] order;
+    private int[] nodeIds;
+    private int[] nodeStarts;
+    private int maximumRequests = 0;
+
+    // The summary, counted in one pass over the records.
+    private int[] executions;
+    private int[] conflicts;
+    private int totalConflicts = 0;
+
+    public VerificationReport(VerificationRecords records, int expectedRequests, double elapsedSeconds) {
+
+        this.records = records;
+        this.expectedRequests = expectedRequests;
+        this.elapsedSeconds = elapsedSeconds;
+        this.order = records.orderByNode();
+
+        // 1. Count the nodes, then fill in where each starts along with its totals.
+        int nodeCount = 0;
+
+        for( int i = 0; i < this.order.length; i++ ) {
+            if( i == 0 || records.getNodeId(this.order[i - 1]) != records.getNodeId(this.order[i]) ) {
+                nodeCount++;
+            }
+        }
+
+        this.nodeIds = new int[nodeCount];
+        this.nodeStarts = new int[nodeCount + 1];
+        this.executions = new int[nodeCount];
+        this.conflicts = new int[nodeCount];
+
+        int node = -1;
+
+        for( int i = 0; i < this.order.length; i++ ) {
+
+            int index = this.order[i];
+
+            if( i == 0 || records.getNodeId(this.order[i - 1]) != records.getNodeId(index) ) {
+                node++;
+                this.nodeIds[node] = records.getNodeId(index);
+                this.nodeStarts[node] = i;
+            }
+
+            this.executions[node]++;
+            this.maximumRequests = Math.max(this.maximumRequests, records.getRequestId(index));
+
+            if( records.isConflicting(index) ) {
+                this.conflicts[node]++;
+                this.totalConflicts++;
+            }
+
+        }
+
+        this.nodeStarts[nodeCount] = this.order.length;
+
+    }
+
+    public void write() throws IOException {
+        this.writeTable("verification-table");
+        this.writeSummaryCsv("verification-summary.csv");
+        this.writeSummaryJson("verification-summary.json");
+    }
+
+    private static Writer open(String path) throws IOException {
+        FileChannel channel = FileChannel.open(Paths.get(path), StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING);
+        return new BufferedWriter(Channels.newWriter(channel, "utf-8"), BUFFER_SIZE);
+    }
+
+    private static String pageName(String baseName, int page) {
+        return ( page == 1 ) ? baseName + ".html" : String.format("%s-%d.html", baseName, page);
+    }
+
+    private void writeTable(String baseName) throws IOException {
+
+        int rowsPerPage = Math.max(1, MAX_CELLS_PER_PAGE / Math.max(1, this.nodeIds.length));
+        int pages = Math.max(1, (this.maximumRequests + rowsPerPage - 1) / rowsPerPage);
+
+        // Each node's records are in request order, so a cursor per node walks them row by row.
+        int[] cursors = new int[this.nodeIds.length];
+        System.arraycopy(this.nodeStarts, 0, cursors, 0, cursors.length);
+
+        for( int page = 1; page <= pages; page++ ) {
+
+            Writer writer = open(pageName(baseName, page));
+
+            try {
+
+                // 1. The title and the links to the neighbouring pages.
+                writer.write(String.format("<h3>%d of %d Requests (%d%%)</h3><hr />", this.records.size(), this.expectedRequests, (int) ((this.records.size() / (double) this.expectedRequests) * 100)));
+
+                if( pages > 1 ) {
+                    writer.write(String.format("<p>Page %d of %d", page, pages));
+                    if( page > 1 ) {
+                        writer.write(String.format(" <a href=\"%s\">previous</a>", pageName(baseName, page - 1)));
+                    }
+                    if( page < pages ) {
+                        writer.write(String.format(" <a href=\"%s\">next</a>", pageName(baseName, page + 1)));
+                    }
+                    writer.write("</p>");
+                }
+
+                writer.write("<table cellpadding=\"5\"><thead><tr><th></th>");
+
+                for( int nodeId : this.nodeIds ) {
+                    writer.write(String.format("<th>Node %d</th>", nodeId));
+                }
+
+                writer.write("</tr></thead><tbody>");
+
+                // 2. The rows of this page.
+                int lastRequest = Math.min(this.maximumRequests, page * rowsPerPage);
+
+                for( int requestId = (page - 1) * rowsPerPage + 1; requestId <= lastRequest; requestId++ ) {
+
+                    writer.write(String.format("<tr><td><strong>Request %d</strong></td>", requestId));
+
+                    for( int node = 0; node < this.nodeIds.length; node++ ) {
+
+                        if( cursors[node] < this.nodeStarts[node + 1] && this.records.getRequestId(this.order[cursors[node]]) == requestId ) {
+                            writer.write("<td>");
+                            this.writeCell(writer, this.order[cursors[node]++]);
+                            writer.write("</td>");
+                        } else {
+                            writer.write("<td></td>");
+                        }
+
+                    }
+
+                    writer.write("</tr>");
+
+                }
+
+                writer.write("</tbody></table>");
+
+            } finally {
+                writer.close();
+            }
+
+        }
+
+    }
+
+    // One cell of the table, green unless it overlaps another execution.
+    private void writeCell(Writer writer, int index) throws IOException {
+
+        String descriptionCell = "";
+        int conflict = this.records.getConflict(index);
+
+        if( conflict != -1 ) {
+            descriptionCell = String.format("R(%d) @ Node(%d)", this.records.getRequestId(conflict), this.records.getNodeId(conflict));
+        }
+
+        writer.write(String.format("<table cellpadding=\"2\" bgcolor=\"%s\"><tr><td>%d</td><td>%d</td></tr><tr><td colspan=\"2\">%s</td></tr></table>", ( conflict != -1 ) ? "red" : "green", this.records.getStartTime(index), this.records.getEndTime(index), descriptionCell));
+
+    }
+
+    private void writeSummaryCsv(String path) throws IOException {
+
+        Writer writer = open(path);
+
+        try {
+
+            writer.write("node,executions,conflicts\n");
+
+            for( int node = 0; node < this.nodeIds.length; node++ ) {
+                writer.write(String.format("%d,%d,%d\n", this.nodeIds[node], this.executions[node], this.conflicts[node]));
+            }
+
+        } finally {
+            writer.close();
+        }
+
+    }
+
+    private void writeSummaryJson(String path) throws IOException {
+
+        Writer writer = open(path);
+
+        try {
+
+            writer.write(String.format("{\"expected\":%d,\"executions\":%d,\"conflicts\":%d,\"elapsedSeconds\":%.3f,\"executionsPerSecond\":%.1f,\"nodes\":[",
+                this.expectedRequests, this.records.size(), this.totalConflicts, this.elapsedSeconds, this.records.size() / Math.max(this.elapsedSeconds, 1e-9)));
+
+            for( int node = 0; node < this.nodeIds.length; node++ ) {
+                writer.write(String.format("%s{\"node\":%d,\"executions\":%d,\"conflicts\":%d}", ( node == 0 ) ? "" : ",", this.nodeIds[node], this.executions[node], this.conflicts[node]));
+            }
+
+            writer.write("]}\n");
+
+        } finally {
+            writer.close();
+        }
+
+    }
+
+}